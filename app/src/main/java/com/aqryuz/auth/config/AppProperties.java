@@ -1,15 +1,50 @@
 package com.aqryuz.auth.config;
 
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 @ConfigurationProperties(prefix = "app")
 public record AppProperties(JwtProperties jwt, TotpProperties totp, OAuth2Properties oauth2,
                 AdminProperties admin, SecurityProperties security, CorsProperties cors,
-                DeviceManagementProperties deviceManagement) {
+                DeviceManagementProperties deviceManagement,
+                @DefaultValue RevocationProperties revocation,
+                @DefaultValue CacheProperties cache,
+                @DefaultValue PasswordHashingProperties passwordHashing,
+                @DefaultValue LoginRateLimitProperties loginRateLimit,
+                @DefaultValue ReaperProperties reaper,
+                @DefaultValue SessionActivityProperties sessionActivity,
+                @DefaultValue GeoIpProperties geoip,
+                @DefaultValue RefreshTokenProperties refreshToken) {
 
+        /**
+         * @param algorithm token signature algorithm: {@code HS256} (shared secret), {@code ES256}
+         *        or {@code EdDSA}
+         * @param privateKeyPath PEM (PKCS#8) private key for asymmetric algorithms
+         * @param publicKeyPath PEM (X.509) public key for asymmetric algorithms
+         * @param previousSecrets retired HS256 secrets, accepted for verification only until
+         *        the tokens they signed have expired
+         * @param previousPublicKeyPaths PEM (X.509) public keys of retired ES256 or EdDSA key
+         *        pairs, accepted for verification only until the tokens they signed have expired
+         * @param refreshThreshold fraction of a token's lifetime (or of the sliding window since
+         *        its last recorded activity) that must elapse before it is re-issued
+         */
         public record JwtProperties(String secret, long expiration, long refreshExpiration,
                         long slidingWindowMinutes, boolean enableSlidingWindow,
-                        long maxSessionDurationMinutes) {
+                        long maxSessionDurationMinutes, boolean statelessAuthentication,
+                        String algorithm, String privateKeyPath, String publicKeyPath,
+                        @DefaultValue List<String> previousSecrets,
+                        @DefaultValue List<String> previousPublicKeyPaths,
+                        @DefaultValue("0.5") double refreshThreshold) {
+        }
+
+        /**
+         * @param tagKey HMAC key for the tag binding a refresh token's family prefix to its
+         *        secret; independent of the JWT signing key
+         * @param previousTagKeys retired tag keys, still accepted when checking tags
+         */
+        public record RefreshTokenProperties(String tagKey,
+                        @DefaultValue List<String> previousTagKeys) {
         }
 
         public record TotpProperties(String issuer, int period, int digits) {
@@ -34,4 +69,99 @@ public record AppProperties(JwtProperties jwt, TotpProperties totp, OAuth2Proper
         public record DeviceManagementProperties(int maxSessionsPerUser, boolean trackLocation,
                         boolean allowMultipleDevices) {
         }
+
+        /**
+         * @param store where revocations are persisted: {@code database} (shared by all nodes) or
+         *        {@code memory} (lost on restart)
+         * @param syncIntervalSeconds how often each node pulls revocations made by other nodes
+         */
+        public record RevocationProperties(@DefaultValue("database") String store,
+                        @DefaultValue("5") long syncIntervalSeconds) {
+        }
+
+        /**
+         * @param userDetailsMaxSize maximum number of principals cached for the JWT filter
+         * @param userDetailsTtlSeconds how long a cached principal is trusted without reloading
+         * @param securityVersionTtlSeconds how long a stateless token's security version is
+         *        trusted without re-reading it, i.e. the worst-case delay before a role change or
+         *        password reset made on another node takes effect
+         * @param sessionStateMaxSize maximum number of session states cached for the JWT filter
+         * @param sessionStateTtlSeconds how long a session's state is trusted without re-reading
+         *        it, i.e. the worst-case delay before a revocation made on another node is enforced
+         * @param userAgentMaxSize maximum number of distinct User-Agent strings kept parsed
+         */
+        public record CacheProperties(@DefaultValue("10000") long userDetailsMaxSize,
+                        @DefaultValue("300") long userDetailsTtlSeconds,
+                        @DefaultValue("30") long securityVersionTtlSeconds,
+                        @DefaultValue("100000") long sessionStateMaxSize,
+                        @DefaultValue("30") long sessionStateTtlSeconds,
+                        @DefaultValue("1000") long userAgentMaxSize) {
+        }
+
+        /**
+         * @param threads size of the dedicated hashing pool; {@code 0} uses one thread per core
+         * @param queueCapacity hash operations allowed to wait for a thread before new ones are
+         *        rejected
+         * @param timeoutMillis longest a caller waits for its hash before giving up
+         * @param algorithm encoder for new hashes: {@code argon2} (Argon2id) or {@code bcrypt}
+         * @param targetMillis verification latency the work factor is calibrated to at startup;
+         *        {@code 0} uses the minimum recommended parameters
+         * @param argon2MemoryKib Argon2id memory cost in KiB
+         */
+        public record PasswordHashingProperties(@DefaultValue("0") int threads,
+                        @DefaultValue("64") int queueCapacity,
+                        @DefaultValue("5000") long timeoutMillis,
+                        @DefaultValue("argon2") String algorithm,
+                        @DefaultValue("250") long targetMillis,
+                        @DefaultValue("19456") int argon2MemoryKib) {
+        }
+
+        /**
+         * Token buckets charged per login attempt: {@code *Burst} attempts are allowed at once,
+         * refilling at {@code *PerMinute}.
+         *
+         * @param maxTrackedKeys bound on remembered usernames, addresses and networks per scope
+         */
+        public record LoginRateLimitProperties(@DefaultValue("true") boolean enabled,
+                        @DefaultValue("10") int userBurst, @DefaultValue("5") int userPerMinute,
+                        @DefaultValue("20") int ipBurst, @DefaultValue("10") int ipPerMinute,
+                        @DefaultValue("100") int subnetBurst,
+                        @DefaultValue("50") int subnetPerMinute,
+                        @DefaultValue("100000") long maxTrackedKeys) {
+        }
+
+        /**
+         * @param intervalSeconds pause between sweeps of the refresh token and session tables
+         * @param batchSize rows deactivated or deleted per statement
+         * @param batchPauseMillis pause between batches, bounding the sweep's write rate
+         * @param maxBatchesPerRun batches per table and phase in one sweep; the rest waits for
+         *        the next sweep
+         * @param retentionDays how long expired rows are kept before being deleted
+         */
+        public record ReaperProperties(@DefaultValue("true") boolean enabled,
+                        @DefaultValue("300") long intervalSeconds,
+                        @DefaultValue("500") int batchSize,
+                        @DefaultValue("50") long batchPauseMillis,
+                        @DefaultValue("200") int maxBatchesPerRun,
+                        @DefaultValue("30") long retentionDays) {
+        }
+
+        /**
+         * @param flushIntervalSeconds longest a session's recorded activity waits before being
+         *        written
+         * @param flushBatchSize sessions updated per statement
+         */
+        public record SessionActivityProperties(@DefaultValue("30") long flushIntervalSeconds,
+                        @DefaultValue("500") int flushBatchSize) {
+        }
+
+        /**
+         * @param databasePath CSV file of address ranges and their locations, one
+         *        {@code start,end,location...} or {@code network/prefix,location...} per line;
+         *        blank disables lookups
+         * @param cacheMaxSize maximum number of recently looked-up addresses kept resolved
+         */
+        public record GeoIpProperties(@DefaultValue("") String databasePath,
+                        @DefaultValue("10000") long cacheMaxSize) {
+        }
 }
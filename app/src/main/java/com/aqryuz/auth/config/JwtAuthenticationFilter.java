@@ -9,7 +9,9 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import com.aqryuz.auth.service.JwtService;
+import com.aqryuz.auth.service.SessionActivityTracker;
 import com.aqryuz.auth.service.UserService;
+import com.aqryuz.auth.service.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,6 +26,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserService userService;
+    private final AppProperties appProperties;
+    private final SessionActivityTracker sessionActivityTracker;
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -42,15 +46,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            username = jwtService.extractUsername(jwt);
+            // Verify the signature once; everything below works off the decoded claims
+            VerifiedToken verifiedToken = jwtService.verify(jwt);
+            username = verifiedToken.username();
 
             if (username != null
                     && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userService.loadUserByUsername(username);
+                UserDetails userDetails = resolvePrincipal(verifiedToken);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null && jwtService.isTokenValid(verifiedToken, userDetails)) {
                     // Try to refresh token for sliding window activity
-                    String refreshedToken = jwtService.refreshTokenForActivity(jwt, userDetails);
+                    String refreshedToken =
+                            jwtService.refreshTokenForActivity(verifiedToken, userDetails);
 
                     if (refreshedToken == null) {
                         // Session expired due to max duration
@@ -69,6 +76,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     authToken
                             .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
+                    sessionActivityTracker.touch(verifiedToken.sessionId());
 
                     // If token was refreshed, add it to response header
                     if (!refreshedToken.equals(jwt)) {
@@ -85,4 +94,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * In stateless mode the principal is rebuilt from the token's claims and the database is only
+     * consulted (through a short-lived cache) for the user's security version. Tokens without the
+     * stateless claims fall back to loading the user.
+     */
+    private UserDetails resolvePrincipal(VerifiedToken verifiedToken) {
+        if (appProperties.jwt().statelessAuthentication()) {
+            UserDetails principal = jwtService.principalFromClaims(verifiedToken);
+            if (principal != null) {
+                if (!userService.isSecurityVersionCurrent(verifiedToken.username(),
+                        verifiedToken.securityVersion())) {
+                    log.debug("Security version changed for user: {}", verifiedToken.username());
+                    return null;
+                }
+                return principal;
+            }
+        }
+        return userService.loadUserByUsernameCached(verifiedToken.username());
+    }
 }
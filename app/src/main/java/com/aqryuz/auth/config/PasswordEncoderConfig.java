@@ -1,15 +1,41 @@
 package com.aqryuz.auth.config;
 
+import java.util.Map;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class PasswordEncoderConfig {
 
+    private static final String BCRYPT = "bcrypt";
+    private static final String ARGON2 = "argon2";
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(AppProperties appProperties,
+            MeterRegistry meterRegistry) {
+        AppProperties.PasswordHashingProperties properties = appProperties.passwordHashing();
+        String idForEncode = BCRYPT.equalsIgnoreCase(properties.algorithm()) ? BCRYPT : ARGON2;
+
+        // Only the encoder used for new hashes is calibrated; verification reads the parameters
+        // stored in each hash, and weaker ones are upgraded on the next successful login
+        BCryptPasswordEncoder bcrypt = BCRYPT.equals(idForEncode)
+                ? PasswordHashCalibrator.bcrypt(properties.targetMillis())
+                : new BCryptPasswordEncoder();
+        PasswordEncoder argon2 = ARGON2.equals(idForEncode)
+                ? PasswordHashCalibrator.argon2(properties.targetMillis(),
+                        properties.argon2MemoryKib())
+                : PasswordHashCalibrator.argon2(0, properties.argon2MemoryKib());
+
+        DelegatingPasswordEncoder delegating =
+                new DelegatingPasswordEncoder(idForEncode, Map.of(BCRYPT, bcrypt, ARGON2, argon2));
+        // Hashes stored before ids were introduced are plain bcrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // Hashing runs on its own bounded pool so login bursts cannot starve request threads
+        return new BoundedPasswordEncoder(delegating, properties, meterRegistry);
     }
 }
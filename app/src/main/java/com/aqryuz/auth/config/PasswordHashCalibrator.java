@@ -0,0 +1,80 @@
+package com.aqryuz.auth.config;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks password hashing parameters for the machine the server runs on. The work factor is raised
+ * step by step until one verification takes at least the configured target, never dropping below
+ * a safe floor, so login latency is a deliberate setting rather than whatever the defaults cost on
+ * this hardware.
+ */
+@Slf4j
+final class PasswordHashCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-Sample-Passw0rd";
+    private static final int SAMPLES = 3;
+
+    // OWASP minimums: bcrypt cost 10, Argon2id with 19 MiB, 2 iterations, 1 lane
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+    private static final int MIN_ARGON2_ITERATIONS = 2;
+    private static final int MAX_ARGON2_ITERATIONS = 10;
+    private static final int ARGON2_SALT_LENGTH = 16;
+    private static final int ARGON2_HASH_LENGTH = 32;
+    private static final int ARGON2_PARALLELISM = 1;
+
+    private PasswordHashCalibrator() {
+    }
+
+    static BCryptPasswordEncoder bcrypt(long targetMillis) {
+        int strength = calibrate("bcrypt strength", MIN_BCRYPT_STRENGTH, MAX_BCRYPT_STRENGTH,
+                targetMillis, BCryptPasswordEncoder::new);
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    static Argon2PasswordEncoder argon2(long targetMillis, int memoryKib) {
+        IntFunction<Argon2PasswordEncoder> factory =
+                iterations -> new Argon2PasswordEncoder(ARGON2_SALT_LENGTH, ARGON2_HASH_LENGTH,
+                        ARGON2_PARALLELISM, memoryKib, iterations);
+        int iterations = calibrate("argon2id iterations (" + memoryKib + " KiB)",
+                MIN_ARGON2_ITERATIONS, MAX_ARGON2_ITERATIONS, targetMillis, factory);
+        return factory.apply(iterations);
+    }
+
+    private static int calibrate(String parameter, int min, int max, long targetMillis,
+            IntFunction<? extends PasswordEncoder> factory) {
+        if (targetMillis <= 0) {
+            return min;
+        }
+
+        int value = min;
+        long millis = measure(factory.apply(value));
+        while (millis < targetMillis && value < max) {
+            value++;
+            millis = measure(factory.apply(value));
+        }
+        log.info("Calibrated {} = {} ({} ms per verification, target {} ms)", parameter, value,
+                millis, targetMillis);
+        return value;
+    }
+
+    /**
+     * Median verification time in milliseconds, after one warm-up round
+     */
+    private static long measure(PasswordEncoder encoder) {
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -2,16 +2,22 @@ package com.aqryuz.auth.controller;
 
 import java.util.Map;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.aqryuz.auth.dto.LoginRequest;
 import com.aqryuz.auth.dto.LoginResponse;
+import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.service.AuthenticationService;
+import com.aqryuz.auth.service.ClientIpResolver;
 import com.aqryuz.auth.service.CookieService;
 import com.aqryuz.auth.service.JwtService;
+import com.aqryuz.auth.service.LoginRateLimiter;
 import com.aqryuz.auth.service.RefreshTokenService;
+import com.aqryuz.auth.service.SessionRevocationService;
+import com.aqryuz.auth.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -35,6 +41,10 @@ public class AuthController {
         private final JwtService jwtService;
         private final CookieService cookieService;
         private final RefreshTokenService refreshTokenService;
+        private final LoginRateLimiter loginRateLimiter;
+        private final ClientIpResolver clientIpResolver;
+        private final UserService userService;
+        private final SessionRevocationService sessionRevocationService;
 
         @PostMapping("/login")
         @Operation(summary = "User Login",
@@ -45,10 +55,19 @@ public class AuthController {
                         @ApiResponse(responseCode = "401", description = "Invalid credentials",
                                         content = @Content(mediaType = "application/json")),
                         @ApiResponse(responseCode = "400", description = "Invalid request format",
+                                        content = @Content(mediaType = "application/json")),
+                        @ApiResponse(responseCode = "429",
+                                        description = "Too many login attempts, retry later",
+                                        content = @Content(mediaType = "application/json")),
+                        @ApiResponse(responseCode = "503",
+                                        description = "Too many concurrent logins, retry later",
                                         content = @Content(mediaType = "application/json"))})
         public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request,
                         HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
                 log.info("Login attempt for user: {}", request.getUsernameOrEmail());
+                // Reject floods before any password hashing happens
+                loginRateLimiter.checkAttempt(request.getUsernameOrEmail(),
+                                clientIpResolver.resolve(httpRequest));
                 LoginResponse response = authenticationService.authenticate(request, httpRequest,
                                 httpResponse);
                 return ResponseEntity.ok(response);
@@ -91,4 +110,21 @@ public class AuthController {
                                         Map.of("error", "Logout failed", "code", "LOGOUT_ERROR"));
                 }
         }
+
+        @PostMapping("/logout-all")
+        @Operation(summary = "Logout Everywhere",
+                        description = "Revoke every session and refresh token of the current user")
+        @ApiResponses(value = {
+                        @ApiResponse(responseCode = "200", description = "All sessions revoked"),
+                        @ApiResponse(responseCode = "401", description = "Unauthorized")})
+        public ResponseEntity<Map<String, Object>> logoutAll(Authentication authentication,
+                        HttpServletResponse response) {
+                User user = userService.findByUsernameOrEmail(authentication.getName())
+                                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+                int revoked = sessionRevocationService.revokeAll(user, "logout-all");
+                cookieService.clearRefreshTokenCookie(response);
+
+                return ResponseEntity.ok(Map.of("message", "Logged out from all devices",
+                                "revokedSessions", revoked));
+        }
 }
@@ -0,0 +1,28 @@
+package com.aqryuz.auth.controller;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import com.aqryuz.auth.service.JwtKeyProvider;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Publishes the token verification keys so resource servers can validate JWTs locally
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyProvider jwtKeyProvider;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic()
+                        .staleWhileRevalidate(1, TimeUnit.DAYS))
+                .body(jwtKeyProvider.getJwkSet());
+    }
+}
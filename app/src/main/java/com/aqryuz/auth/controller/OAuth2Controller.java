@@ -1,6 +1,7 @@
 package com.aqryuz.auth.controller;
 
 import java.util.Map;
+import java.util.UUID;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,8 +12,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import com.aqryuz.auth.dto.UserInfo;
 import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.service.ClientIpResolver;
 import com.aqryuz.auth.service.JwtService;
+import com.aqryuz.auth.service.LoginRateLimiter;
 import com.aqryuz.auth.service.UserService;
+import com.aqryuz.auth.service.UserSessionService;
+import com.aqryuz.auth.service.VerifiedToken;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -27,6 +33,9 @@ public class OAuth2Controller {
 
     private final JwtService jwtService;
     private final UserService userService;
+    private final UserSessionService userSessionService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ClientIpResolver clientIpResolver;
 
     @Value("${app.oauth2.client-id}")
     private String expectedClientId;
@@ -60,7 +69,8 @@ public class OAuth2Controller {
             @RequestParam(value = "client_secret") String clientSecret,
             @RequestParam(value = "redirect_uri", required = false) String redirectUri,
             @RequestParam(value = "username", required = false) String username,
-            @RequestParam(value = "password", required = false) String password) {
+            @RequestParam(value = "password", required = false) String password,
+            HttpServletRequest request) {
 
         log.info("OAuth2 token request - grant_type: {}, client_id: {}", grantType, clientId);
 
@@ -69,7 +79,13 @@ public class OAuth2Controller {
             return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, "invalid_client"));
         }
 
+        // Both grants identify a user, so they share the login attempt budget
+        loginRateLimiter.checkAttempt("password".equals(grantType) ? username : code,
+                clientIpResolver.resolve(request));
+
         try {
+            // Recorded below; access tokens without a session row are rejected
+            String sessionId = UUID.randomUUID().toString();
             String accessToken;
             User user;
 
@@ -78,7 +94,7 @@ public class OAuth2Controller {
                 // In production, you'd store and validate authorization codes
                 user = userService.findByUsernameOrEmail(code)
                         .orElseThrow(() -> new RuntimeException("Invalid authorization code"));
-                accessToken = jwtService.generateToken(user);
+                accessToken = jwtService.generateToken(user, sessionId);
 
             } else if ("password".equals(grantType)) {
                 // Resource Owner Password Credentials Grant (for trusted clients)
@@ -90,13 +106,14 @@ public class OAuth2Controller {
                         .orElseThrow(() -> new RuntimeException("Invalid credentials"));
 
                 // Note: In production, you should validate the password here
-                accessToken = jwtService.generateToken(user);
+                accessToken = jwtService.generateToken(user, sessionId);
 
             } else {
                 return ResponseEntity.badRequest()
                         .body(Map.of(ERROR_KEY, "unsupported_grant_type"));
             }
 
+            userSessionService.createSession(user, sessionId, request);
             String refreshToken = jwtService.generateRefreshToken(user);
 
             return ResponseEntity
@@ -121,8 +138,8 @@ public class OAuth2Controller {
                 return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, INVALID_TOKEN));
             }
 
-            String token = authorization.substring(7);
-            String username = jwtService.extractUsername(token);
+            VerifiedToken verifiedToken = jwtService.verify(authorization.substring(7));
+            String username = verifiedToken.username();
 
             if (username == null) {
                 return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, INVALID_TOKEN));
@@ -131,7 +148,7 @@ public class OAuth2Controller {
             User user = userService.findByUsernameOrEmail(username)
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            if (!jwtService.isTokenValid(token, user)) {
+            if (!jwtService.isTokenValid(verifiedToken, user)) {
                 return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, INVALID_TOKEN));
             }
 
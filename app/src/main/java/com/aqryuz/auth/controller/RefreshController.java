@@ -66,8 +66,9 @@ public class RefreshController {
 
             RefreshToken validatedToken = validatedTokenOpt.get();
 
-            // Generate new access token
-            String newAccessToken = jwtService.generateToken(validatedToken.getUser());
+            // Generate new access token for the session the refresh token belongs to
+            String newAccessToken = jwtService.generateToken(validatedToken.getUser(),
+                    validatedToken.getSessionId());
 
             // Update the refresh token cookie with the new rotated token
             cookieService.createRefreshTokenCookie(response, validatedToken.getToken(),
@@ -1,6 +1,5 @@
 package com.aqryuz.auth.controller;
 
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.http.ResponseEntity;
@@ -12,12 +11,14 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.aqryuz.auth.service.JwtService;
+import com.aqryuz.auth.service.VerifiedToken;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -42,15 +43,16 @@ public class SessionController {
                     content = @Content(mediaType = "application/json"))})
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Map<String, Object>> getSessionInfo(
-            @RequestHeader("Authorization") String authHeader, Authentication authentication) {
+            @RequestHeader("Authorization") String authHeader, Authentication authentication,
+            HttpServletRequest request) {
 
         try {
             if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
                 return ResponseEntity.badRequest().build();
             }
 
-            String token = authHeader.substring(7);
-            Map<String, Object> sessionInfo = jwtService.getSessionInfo(token);
+            VerifiedToken verifiedToken = resolveToken(request, authHeader.substring(7));
+            Map<String, Object> sessionInfo = jwtService.getSessionInfo(verifiedToken);
 
             // Transform and enhance the session info to match expected format
             Map<String, Object> response = new HashMap<>(sessionInfo);
@@ -62,7 +64,7 @@ public class SessionController {
             }
 
             // Add session timeout related fields
-            response.put("remainingMinutes", calculateRemainingMinutes(token));
+            response.put("remainingMinutes", calculateRemainingMinutes(verifiedToken));
             response.put("maxSessionMinutes", 120); // From test configuration
             response.put("slidingWindowEnabled", true); // From test configuration
 
@@ -92,7 +94,8 @@ public class SessionController {
                     content = @Content(mediaType = "application/json"))})
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Map<String, Object>> refreshSession(
-            @RequestHeader("Authorization") String authHeader, Authentication authentication) {
+            @RequestHeader("Authorization") String authHeader, Authentication authentication,
+            HttpServletRequest request) {
 
         try {
             if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
@@ -103,7 +106,8 @@ public class SessionController {
 
             if (authentication != null
                     && authentication.getPrincipal() instanceof UserDetails userDetails) {
-                String refreshedToken = jwtService.refreshTokenForActivity(token, userDetails);
+                String refreshedToken = jwtService
+                        .forceRefreshTokenForActivity(resolveToken(request, token), userDetails);
 
                 if (refreshedToken == null) {
                     log.info("Session refresh failed - session expired for user: {}",
@@ -112,9 +116,11 @@ public class SessionController {
                             .body(Map.of("error", "Session expired", "code", "SESSION_EXPIRED"));
                 }
 
-                Map<String, Object> response = Map.of("message", "Session refreshed successfully",
-                        "tokenRefreshed", !refreshedToken.equals(token), "newToken",
-                        refreshedToken.equals(token) ? null : refreshedToken);
+                // Map.of rejects null values, and newToken is null when nothing was re-issued
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Session refreshed successfully");
+                response.put("tokenRefreshed", !refreshedToken.equals(token));
+                response.put("newToken", refreshedToken.equals(token) ? null : refreshedToken);
 
                 log.info("Session manually refreshed for user: {}", userDetails.getUsername());
                 return ResponseEntity.ok(response);
@@ -138,19 +144,20 @@ public class SessionController {
                     content = @Content(mediaType = "application/json"))})
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Map<String, Object>> validateSession(
-            @RequestHeader("Authorization") String authHeader, Authentication authentication) {
+            @RequestHeader("Authorization") String authHeader, Authentication authentication,
+            HttpServletRequest request) {
 
         try {
             if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
                 return ResponseEntity.badRequest().build();
             }
 
-            String token = authHeader.substring(7);
+            VerifiedToken verifiedToken = resolveToken(request, authHeader.substring(7));
 
             if (authentication != null
                     && authentication.getPrincipal() instanceof UserDetails userDetails) {
-                boolean isValid = jwtService.isTokenValid(token, userDetails);
-                Map<String, Object> sessionInfo = jwtService.getSessionInfo(token);
+                boolean isValid = jwtService.isTokenValid(verifiedToken, userDetails);
+                Map<String, Object> sessionInfo = jwtService.getSessionInfo(verifiedToken);
 
                 Map<String, Object> response = Map.of("valid", isValid, "username",
                         userDetails.getUsername(), "sessionInfo", sessionInfo);
@@ -166,15 +173,23 @@ public class SessionController {
         }
     }
 
-    private long calculateRemainingMinutes(String token) {
-        try {
-            Date expiration = jwtService.extractClaim(token, io.jsonwebtoken.Claims::getExpiration);
-            long currentTime = System.currentTimeMillis();
-            long remainingMs = expiration.getTime() - currentTime;
-            return Math.max(0, remainingMs / (1000 * 60)); // Convert to minutes
-        } catch (Exception e) {
-            log.warn("Error calculating remaining minutes: {}", e.getMessage());
+    /**
+     * Reuse the token verified by the authentication filter instead of parsing it again
+     */
+    private VerifiedToken resolveToken(HttpServletRequest request, String token) {
+        if (request.getAttribute(VerifiedToken.REQUEST_ATTRIBUTE) instanceof VerifiedToken verified
+                && verified.token().equals(token)) {
+            return verified;
+        }
+        return jwtService.verify(token);
+    }
+
+    private long calculateRemainingMinutes(VerifiedToken verifiedToken) {
+        if (verifiedToken.expiration() == null) {
             return 0;
         }
+        long currentTime = System.currentTimeMillis();
+        long remainingMs = verifiedToken.expiration().getTime() - currentTime;
+        return Math.max(0, remainingMs / (1000 * 60)); // Convert to minutes
     }
 }
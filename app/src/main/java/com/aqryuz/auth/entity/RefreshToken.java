@@ -1,6 +1,7 @@
 package com.aqryuz.auth.entity;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -10,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -27,11 +29,28 @@ public class RefreshToken {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 500)
+    /**
+     * Plaintext token, only known in memory right after it is issued or rotated so it can be
+     * handed to the client; the database keeps just its hash
+     */
+    @Transient
     private String token;
 
-    @Column(nullable = false, length = 255)
-    private String tokenHash; // Store hashed version for security
+    // SHA-256 of the token; unique among active rows (partial index, see the migrations)
+    @Column(nullable = false, length = 32)
+    private byte[] tokenHash;
+
+    // Stays the same across rotations; a replayed old generation revokes the whole family
+    @Column(nullable = false, unique = true)
+    private UUID familyId;
+
+    // Number of rotations so far, embedded in the token handed to the client
+    @Column(nullable = false)
+    private int generation;
+
+    // Session of the access tokens this token renews; refreshing keeps it
+    @Column
+    private String sessionId;
 
     @Column(nullable = false)
     private LocalDateTime expiryDate;
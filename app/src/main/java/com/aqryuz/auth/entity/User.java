@@ -85,6 +85,11 @@ public class User implements UserDetails {
     @Column(name = "failed_login_attempts")
     private int failedLoginAttempts = 0;
 
+    // Bumped whenever credentials, roles or account status change; stateless tokens carry it
+    @Builder.Default
+    @Column(name = "security_version", nullable = false, columnDefinition = "integer default 0")
+    private int securityVersion = 0;
+
     @Column(name = "lockout_time")
     private LocalDateTime lockoutTime;
 
@@ -187,6 +192,10 @@ public class User implements UserDetails {
         this.roles.remove(role);
     }
 
+    public void incrementSecurityVersion() {
+        this.securityVersion++;
+    }
+
     public String getFullName() {
         if (firstName != null && lastName != null) {
             return firstName + " " + lastName;
@@ -10,7 +10,6 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
-import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -88,11 +87,6 @@ public class UserSession {
         this.lastActivity = LocalDateTime.now();
     }
 
-    @PreUpdate
-    void onUpdate() {
-        this.lastActivity = LocalDateTime.now();
-    }
-
     public boolean isExpired() {
         return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
     }
@@ -3,6 +3,7 @@ package com.aqryuz.auth.exception;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -26,6 +27,28 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
 
+    @ExceptionHandler(PasswordHashingCapacityException.class)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingCapacity(
+            PasswordHashingCapacityException e) {
+        log.warn("Password hashing saturated: {}", e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder().timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value()).error("Service Unavailable")
+                .message("Too many concurrent logins, please retry shortly").build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1").body(errorResponse);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceeded(RateLimitExceededException e) {
+        log.warn("Rate limit exceeded: {}", e.getMessage());
+        ErrorResponse errorResponse = ErrorResponse.builder().timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value()).error("Too Many Requests")
+                .message(e.getMessage()).build();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleUserNotFound(UsernameNotFoundException e) {
         log.error("User not found: {}", e.getMessage());
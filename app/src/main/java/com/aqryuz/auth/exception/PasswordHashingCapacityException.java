@@ -0,0 +1,10 @@
+package com.aqryuz.auth.exception;
+
+/**
+ * Thrown when the password hashing pool is saturated and a request is rejected instead of queued
+ */
+public class PasswordHashingCapacityException extends RuntimeException {
+    public PasswordHashingCapacityException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.aqryuz.auth.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a client exceeds the login attempt rate; mapped to 429 with a Retry-After header
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,14 @@
+package com.aqryuz.auth.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of one expiry batch: how many rows it touched and the latest expiry among them, which is
+ * where the next batch resumes
+ */
+public interface ReapedBatch {
+
+    long getCount();
+
+    LocalDateTime getCursor();
+}
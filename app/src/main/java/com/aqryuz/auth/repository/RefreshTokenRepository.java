@@ -3,39 +3,123 @@ package com.aqryuz.auth.repository;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.entity.RefreshToken;
 import com.aqryuz.auth.entity.User;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByTokenAndActiveTrue(String token);
+    Optional<RefreshToken> findByTokenHashAndActiveTrue(byte[] tokenHash);
 
-    Optional<RefreshToken> findByTokenHashAndActiveTrue(String tokenHash);
+    /**
+     * Swap an active, unexpired token's hash for a new one in a single statement. The row lock
+     * taken by the UPDATE makes a replayed token lose: the concurrent attempt re-checks the hash
+     * after the winner commits and matches nothing. A token presented with its family must also
+     * match the family and generation; a {@code null} family rotates by hash alone.
+     *
+     * @return the rotated token, or empty if the old hash is unknown, revoked or expired
+     */
+    @Query(value = """
+            UPDATE refresh_tokens
+            SET token_hash = :newTokenHash, generation = generation + 1, last_used_at = :now
+            WHERE token_hash = :oldTokenHash AND active AND expiry_date > :now
+            AND (CAST(:familyId AS uuid) IS NULL
+                OR (family_id = CAST(:familyId AS uuid) AND generation = :generation))
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<RefreshToken> rotateToken(@Param("oldTokenHash") byte[] oldTokenHash,
+            @Param("familyId") UUID familyId, @Param("generation") int generation,
+            @Param("newTokenHash") byte[] newTokenHash, @Param("now") LocalDateTime now);
+
+    /**
+     * Deactivate a token family if it has rotated past the presented generation. The previous
+     * generation only counts once the family has been stable since {@code graceCutoff}.
+     *
+     * @return 1 if the family was revoked, 0 otherwise
+     */
+    @Modifying
+    @Query("""
+            UPDATE RefreshToken r SET r.active = false
+            WHERE r.familyId = :familyId AND r.active = true
+            AND (r.generation > :generation + 1
+                OR (r.generation = :generation + 1 AND r.lastUsedAt < :graceCutoff))
+            """)
+    int revokeFamilyOnReuse(@Param("familyId") UUID familyId,
+            @Param("generation") int generation,
+            @Param("graceCutoff") LocalDateTime graceCutoff);
 
     List<RefreshToken> findByUserAndActiveTrue(User user);
 
     List<RefreshToken> findByUserAndRememberMeTrueAndActiveTrue(User user);
 
     @Modifying
-    @Query("UPDATE RefreshToken r SET r.active = false WHERE r.user = :user")
-    void deactivateAllTokensForUser(@Param("user") User user);
+    @Query("UPDATE RefreshToken r SET r.active = false WHERE r.user = :user AND r.active = true")
+    int deactivateAllTokensForUser(@Param("user") User user);
 
     @Modifying
-    @Query("UPDATE RefreshToken r SET r.active = false WHERE r.expiryDate < :now")
-    void deactivateExpiredTokens(@Param("now") LocalDateTime now);
+    @Query("""
+            UPDATE RefreshToken r SET r.active = false
+            WHERE r.sessionId = :sessionId AND r.active = true
+            """)
+    int deactivateBySessionId(@Param("sessionId") String sessionId);
+
+    /**
+     * Deactivate up to {@code batchSize} expired tokens, walking the expiry index from
+     * {@code after} so rows handled by earlier batches are not scanned again
+     */
+    @Transactional
+    @Query(value = """
+            WITH reaped AS (
+                UPDATE refresh_tokens SET active = false
+                WHERE id IN (SELECT id FROM refresh_tokens
+                    WHERE active AND expiry_date >= :after AND expiry_date < :now
+                    ORDER BY expiry_date LIMIT :batchSize)
+                RETURNING expiry_date)
+            SELECT COUNT(*) AS "count", MAX(expiry_date) AS "cursor" FROM reaped
+            """, nativeQuery = true)
+    ReapedBatch deactivateExpiredBatch(@Param("after") LocalDateTime after,
+            @Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    /**
+     * Delete up to {@code batchSize} tokens that expired before {@code cutoff}
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM refresh_tokens WHERE id IN (SELECT id FROM refresh_tokens
+                WHERE expiry_date < :cutoff ORDER BY expiry_date LIMIT :batchSize)
+            """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff,
+            @Param("batchSize") int batchSize);
+
+    // Planner statistics rather than COUNT(*), so reporting the size never scans the table
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS bigint) FROM pg_class WHERE relname = 'refresh_tokens'",
+            nativeQuery = true)
+    long estimateRowCount();
 
     @Modifying
     @Query("UPDATE RefreshToken r SET r.active = false WHERE r.id = :id")
     void deactivateToken(@Param("id") Long id);
 
-    @Query("SELECT COUNT(r) FROM RefreshToken r WHERE r.user = :user AND r.active = true")
-    long countActiveTokensForUser(@Param("user") User user);
+    /**
+     * Deactivate all but the {@code keep} most recently created active tokens of a user
+     *
+     * @return number of tokens deactivated
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE refresh_tokens SET active = false
+            WHERE id IN (SELECT id FROM refresh_tokens WHERE user_id = :userId AND active
+                ORDER BY created_at DESC, id DESC OFFSET :keep)
+            """, nativeQuery = true)
+    int deactivateOldestTokensForUser(@Param("userId") Long userId, @Param("keep") int keep);
 
     @Query("SELECT r FROM RefreshToken r WHERE r.user = :user AND r.deviceFingerprint = :fingerprint AND r.active = true")
     List<RefreshToken> findByUserAndDeviceFingerprintAndActiveTrue(@Param("user") User user,
@@ -0,0 +1,53 @@
+package com.aqryuz.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import com.aqryuz.auth.entity.RevokedToken;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    List<RevokedToken> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Rows whose inserting transaction started within the last {@code seconds}, by the database
+     * clock like {@code revoked_at} itself
+     */
+    @Query(value = """
+            SELECT * FROM revoked_tokens
+            WHERE revoked_at >= LOCALTIMESTAMP - make_interval(secs => :seconds)
+            ORDER BY id
+            """, nativeQuery = true)
+    List<RevokedToken> findRevokedWithin(@Param("seconds") long seconds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO revoked_tokens (session_id, expires_at, revoked_at) VALUES (:sessionId, :expiresAt, LOCALTIMESTAMP) ON CONFLICT (session_id) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("sessionId") String sessionId,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO revoked_tokens (session_id, expires_at, revoked_at)
+            SELECT session_id, expires_at, LOCALTIMESTAMP
+            FROM unnest(CAST(:sessionIds AS varchar[]), CAST(:expiresAt AS timestamp[]))
+                AS r (session_id, expires_at)
+            ON CONFLICT (session_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertAllIfAbsent(@Param("sessionIds") String[] sessionIds,
+            @Param("expiresAt") LocalDateTime[] expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
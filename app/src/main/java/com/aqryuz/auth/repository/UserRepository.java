@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.entity.User;
 
 @Repository
@@ -23,22 +24,62 @@ public interface UserRepository extends JpaRepository<User, Long> {
         @Query("SELECT u FROM User u WHERE u.username = ?1 OR u.email = ?1")
         Optional<User> findByUsernameOrEmail(String usernameOrEmail);
 
+        @Query("SELECT u.securityVersion FROM User u WHERE u.username = :username")
+        Optional<Integer> findSecurityVersionByUsername(@Param("username") String username);
+
         @Modifying
         @Query("UPDATE User u SET u.lastLogin = :lastLogin, u.failedLoginAttempts = 0, u.accountLocked = false, u.lockoutTime = null, u.updatedAt = :updatedAt WHERE u.username = :username")
         int updateLastLogin(@Param("username") String username,
                         @Param("lastLogin") LocalDateTime lastLogin,
                         @Param("updatedAt") LocalDateTime updatedAt);
 
-        @Modifying
-        @Query("UPDATE User u SET u.failedLoginAttempts = :attempts, u.updatedAt = :updatedAt WHERE u.username = :username")
-        int updateFailedLoginAttempts(@Param("username") String username,
-                        @Param("attempts") int attempts,
-                        @Param("updatedAt") LocalDateTime updatedAt);
+        /**
+         * Outcome of {@link #recordFailedLogin}. Zero attempts means an expired lockout was lifted
+         * instead of counting the failure.
+         */
+        interface FailedLoginResult {
+                int getFailedLoginAttempts();
+
+                boolean getAccountLocked();
+        }
+
+        /**
+         * Count a failed login in one statement: lift an expired lockout, or bump the counter and
+         * lock once it reaches {@code maxAttempts} (for {@code 2^(attempts - maxAttempts)} times
+         * the base duration, capped at 24 hours, when progressive). The row lock taken by the
+         * update serializes concurrent failures, so no increment is lost.
+         */
+        @Transactional
+        @Query(value = """
+                        UPDATE users SET
+                            failed_login_attempts = CASE WHEN account_locked AND lockout_time IS NOT NULL
+                                    AND lockout_time + :lockoutMinutes * INTERVAL '1 minute' < :now THEN 0
+                                ELSE failed_login_attempts + 1 END,
+                            account_locked = CASE WHEN account_locked AND lockout_time IS NOT NULL
+                                    AND lockout_time + :lockoutMinutes * INTERVAL '1 minute' < :now THEN false
+                                WHEN failed_login_attempts + 1 >= :maxAttempts THEN true
+                                ELSE account_locked END,
+                            lockout_time = CASE WHEN account_locked AND lockout_time IS NOT NULL
+                                    AND lockout_time + :lockoutMinutes * INTERVAL '1 minute' < :now THEN NULL
+                                WHEN failed_login_attempts + 1 >= :maxAttempts THEN CAST(:now AS timestamp)
+                                    + CASE WHEN :progressive
+                                        THEN LEAST(:lockoutMinutes * POWER(2, LEAST(failed_login_attempts + 1 - :maxAttempts, 11)), 1440)
+                                        ELSE :lockoutMinutes END * INTERVAL '1 minute'
+                                ELSE lockout_time END,
+                            updated_at = :now
+                        WHERE username = :username
+                        RETURNING failed_login_attempts AS "failedLoginAttempts",
+                            account_locked AS "accountLocked"
+                        """, nativeQuery = true)
+        Optional<FailedLoginResult> recordFailedLogin(@Param("username") String username,
+                        @Param("maxAttempts") int maxAttempts,
+                        @Param("lockoutMinutes") long lockoutMinutes,
+                        @Param("progressive") boolean progressive,
+                        @Param("now") LocalDateTime now);
 
         @Modifying
-        @Query("UPDATE User u SET u.accountLocked = true, u.failedLoginAttempts = :attempts, u.lockoutTime = :lockoutTime, u.updatedAt = :updatedAt WHERE u.username = :username")
-        int lockAccount(@Param("username") String username, @Param("attempts") int attempts,
-                        @Param("lockoutTime") LocalDateTime lockoutTime,
+        @Query("UPDATE User u SET u.password = :password, u.updatedAt = :updatedAt WHERE u.id = :id")
+        int updatePasswordHash(@Param("id") Long id, @Param("password") String password,
                         @Param("updatedAt") LocalDateTime updatedAt);
 
         @Modifying
@@ -8,11 +8,15 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.entity.UserSession;
 
 @Repository
-public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
+public interface UserSessionRepository
+        extends JpaRepository<UserSession, Long>, UserSessionRepositoryCustom {
+
+    Optional<UserSession> findBySessionId(String sessionId);
 
     Optional<UserSession> findBySessionIdAndIsActiveTrue(String sessionId);
 
@@ -51,19 +55,60 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
             @Param("excludeSessionId") Long excludeSessionId,
             @Param("revokedAt") LocalDateTime revokedAt, @Param("revokedBy") String revokedBy);
 
+    /**
+     * Revoke every active session of a user in one statement
+     *
+     * @return the revoked sessions, so their tokens can be blacklisted
+     */
+    @Query(value = """
+            UPDATE user_sessions SET is_active = false, revoked_at = :revokedAt,
+                revoked_by = :revokedBy
+            WHERE user_id = :userId AND is_active
+            RETURNING session_id AS "sessionId", expires_at AS "expiresAt"
+            """, nativeQuery = true)
+    List<RevokedSession> revokeAllActiveSessions(@Param("userId") Long userId,
+            @Param("revokedBy") String revokedBy, @Param("revokedAt") LocalDateTime revokedAt);
+
+    interface RevokedSession {
+
+        String getSessionId();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    /**
+     * Deactivate up to {@code batchSize} expired sessions, walking the expiry index from
+     * {@code after} so rows handled by earlier batches are not scanned again
+     */
+    @Transactional
+    @Query(value = """
+            WITH reaped AS (
+                UPDATE user_sessions SET is_active = false
+                WHERE id IN (SELECT id FROM user_sessions
+                    WHERE is_active AND expires_at >= :after AND expires_at < :now
+                    ORDER BY expires_at LIMIT :batchSize)
+                RETURNING expires_at)
+            SELECT COUNT(*) AS "count", MAX(expires_at) AS "cursor" FROM reaped
+            """, nativeQuery = true)
+    ReapedBatch deactivateExpiredBatch(@Param("after") LocalDateTime after,
+            @Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
+
+    /**
+     * Delete up to {@code batchSize} sessions that expired before {@code cutoff}
+     */
+    @Transactional
     @Modifying
-    @Query("UPDATE UserSession s SET s.isActive = false, s.revokedAt = :revokedAt, s.revokedBy = :revokedBy WHERE s.user = :user AND s.isActive = true")
-    void revokeAllUserSessions(@Param("user") User user,
-            @Param("revokedAt") LocalDateTime revokedAt, @Param("revokedBy") String revokedBy);
-
-    @Modifying
-    @Query("UPDATE UserSession s SET s.lastActivity = :lastActivity WHERE s.sessionId = :sessionId")
-    void updateLastActivity(@Param("sessionId") String sessionId,
-            @Param("lastActivity") LocalDateTime lastActivity);
-
-    @Modifying
-    @Query("UPDATE UserSession s SET s.isActive = false WHERE s.expiresAt < :now AND s.isActive = true")
-    void deactivateExpiredSessions(@Param("now") LocalDateTime now);
+    @Query(value = """
+            DELETE FROM user_sessions WHERE id IN (SELECT id FROM user_sessions
+                WHERE expires_at < :cutoff ORDER BY expires_at LIMIT :batchSize)
+            """, nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff,
+            @Param("batchSize") int batchSize);
+
+    // Planner statistics rather than COUNT(*), so reporting the size never scans the table
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS bigint) FROM pg_class WHERE relname = 'user_sessions'",
+            nativeQuery = true)
+    long estimateRowCount();
 
     @Query("SELECT s FROM UserSession s WHERE s.user = :user AND s.ipAddress = :ipAddress AND s.userAgent = :userAgent AND s.isActive = true")
     List<UserSession> findSimilarActiveSessions(@Param("user") User user,
@@ -0,0 +1,19 @@
+package com.aqryuz.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Bulk statements that Spring Data cannot derive
+ */
+public interface UserSessionRepositoryCustom {
+
+    /**
+     * Move {@code last_activity} forward for many active sessions in one statement. A timestamp
+     * older than the stored one is ignored, so out-of-order flushes never move it back.
+     *
+     * @param lastActivities session id to the latest activity seen for it
+     * @return number of sessions updated
+     */
+    int updateLastActivities(Map<String, LocalDateTime> lastActivities);
+}
@@ -0,0 +1,41 @@
+package com.aqryuz.auth.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+class UserSessionRepositoryCustomImpl implements UserSessionRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateLastActivities(Map<String, LocalDateTime> lastActivities) {
+        if (lastActivities.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < lastActivities.size(); i++) {
+            values.append(i == 0 ? "" : ", ").append("(CAST(?").append(2 * i + 1)
+                    .append(" AS varchar), CAST(?").append(2 * i + 2).append(" AS timestamp))");
+        }
+        Query query = entityManager.createNativeQuery("""
+                UPDATE user_sessions s SET last_activity = v.last_activity
+                FROM (VALUES %s) AS v (session_id, last_activity)
+                WHERE s.session_id = v.session_id AND s.is_active
+                AND (s.last_activity IS NULL OR s.last_activity < v.last_activity)
+                """.formatted(values));
+
+        int position = 1;
+        for (Map.Entry<String, LocalDateTime> entry : lastActivities.entrySet()) {
+            query.setParameter(position++, entry.getKey());
+            query.setParameter(position++, entry.getValue());
+        }
+        return query.executeUpdate();
+    }
+}
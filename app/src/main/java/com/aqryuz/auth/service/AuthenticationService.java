@@ -1,12 +1,12 @@
 package com.aqryuz.auth.service;
 
-import org.springframework.security.authentication.AuthenticationManager;
+import java.util.UUID;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.dto.LoginRequest;
 import com.aqryuz.auth.dto.LoginResponse;
 import com.aqryuz.auth.dto.UserInfo;
@@ -14,31 +14,47 @@ import com.aqryuz.auth.entity.RefreshToken;
 import com.aqryuz.auth.entity.User;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Password login. Deliberately not transactional: hashing takes the better part of the request,
+ * and a transaction around it would hold a pooled connection while the encoder works. The user is
+ * read in a short transaction of its own, the password checked with none open, and each write
+ * afterwards (failure counter, hash upgrade, session and refresh token) commits on its own.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-@Transactional
 public class AuthenticationService {
 
-    private final AuthenticationManager authenticationManager;
     private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final UserSessionService userSessionService;
     private final RefreshTokenService refreshTokenService;
     private final CookieService cookieService;
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+    // Hash of a random password in the current encoding, so unknown users cost one verification
+    private final String dummyHash;
+
+    public AuthenticationService(UserService userService, PasswordEncoder passwordEncoder,
+            JwtService jwtService, UserSessionService userSessionService,
+            RefreshTokenService refreshTokenService, CookieService cookieService) {
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtService = jwtService;
+        this.userSessionService = userSessionService;
+        this.refreshTokenService = refreshTokenService;
+        this.cookieService = cookieService;
+        // The encoder is calibrated by the time it is injected, so the first login pays nothing
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
 
     public LoginResponse authenticate(LoginRequest request, HttpServletRequest httpRequest,
             HttpServletResponse httpResponse) {
+        // Resolve the user once; the detached entity carries through every check below
+        User user = userService.findByUsernameOrEmail(request.getUsernameOrEmail()).orElse(null);
         try {
-            // First, authenticate username/password
-            Authentication authentication =
-                    authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
-                            request.getUsernameOrEmail(), request.getPassword()));
-
-            User user = (User) authentication.getPrincipal();
+            checkCredentials(user, request.getPassword());
 
             // Check if TOTP is enabled
             if (user.isTotpEnabled()) {
@@ -49,8 +65,7 @@ public class AuthenticationService {
                 }
 
                 // Verify TOTP code
-                if (!userService.verifyTotpCode(user.getUsername(), request.getTotpCode())) {
-                    userService.incrementFailedLoginAttempts(user.getUsername());
+                if (!userService.verifyTotpCode(user, request.getTotpCode())) {
                     throw new BadCredentialsException("Invalid TOTP code");
                 }
             }
@@ -58,12 +73,6 @@ public class AuthenticationService {
             // Generate short-lived access token (15 minutes)
             String accessToken = jwtService.generateToken(user);
 
-            // Create secure refresh token stored in HTTP-only cookie
-            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user,
-                    request.isRememberMe(), httpRequest);
-            cookieService.createRefreshTokenCookie(httpResponse, refreshToken.getToken(),
-                    request.isRememberMe());
-
             // Extract session ID from access token
             String sessionId = jwtService.extractClaim(accessToken,
                     claims -> (String) claims.get(JwtService.CLAIM_SESSION_ID));
@@ -71,6 +80,12 @@ public class AuthenticationService {
             // Create user session for multi-device tracking
             userSessionService.createSession(user, sessionId, httpRequest);
 
+            // Create secure refresh token stored in HTTP-only cookie, renewing the same session
+            RefreshToken refreshToken = refreshTokenService.createRefreshToken(user, sessionId,
+                    request.isRememberMe(), httpRequest);
+            cookieService.createRefreshTokenCookie(httpResponse, refreshToken.getToken(),
+                    request.isRememberMe());
+
             // Update last login
             userService.updateLastLogin(user.getUsername());
 
@@ -88,31 +103,36 @@ public class AuthenticationService {
 
         } catch (AuthenticationException e) {
             // Only increment failed attempts if user exists
-            userService.findByUsernameOrEmail(request.getUsernameOrEmail()).ifPresent(
-                    user -> userService.incrementFailedLoginAttempts(user.getUsername()));
+            if (user != null) {
+                userService.incrementFailedLoginAttempts(user.getUsername());
+            }
             log.error("Authentication failed for user: {}", request.getUsernameOrEmail());
             throw new BadCredentialsException("Invalid credentials");
         }
     }
 
-    public LoginResponse refreshToken(String refreshToken) {
-        try {
-            String username = jwtService.extractUsername(refreshToken);
-            User user = (User) userService.loadUserByUsername(username);
-
-            if (jwtService.isTokenValid(refreshToken, user)) {
-                String newAccessToken = jwtService.generateToken(user);
-                String newRefreshToken = jwtService.generateRefreshToken(user);
-
-                return LoginResponse.builder().accessToken(newAccessToken)
-                        .refreshToken(newRefreshToken).tokenType("Bearer").expiresIn(86400)
-                        .user(UserInfo.fromUser(user)).requireTotp(false).build();
-            } else {
-                throw new BadCredentialsException("Invalid refresh token");
-            }
-        } catch (Exception e) {
-            log.error("Token refresh failed: {}", e.getMessage());
-            throw new BadCredentialsException("Invalid refresh token");
+    /**
+     * Verify the password, then the account status. Unknown users are checked against a dummy
+     * hash so they cost the same hashing work as known ones and response time reveals nothing.
+     *
+     * <p>
+     * The dummy uses the current encoding. Accounts whose stored hash predates it (bcrypt before
+     * the switch to Argon2id, or a lower work factor) verify at their old cost until their next
+     * successful login upgrades them, so until then their timing can still set them apart from
+     * unknown usernames.
+     */
+    private void checkCredentials(User user, String rawPassword) {
+        if (user == null) {
+            passwordEncoder.matches(rawPassword, dummyHash);
+            throw new BadCredentialsException("Invalid credentials");
+        }
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            throw new BadCredentialsException("Invalid credentials");
+        }
+        accountStatusChecker.check(user);
+
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            userService.upgradePasswordHash(user, passwordEncoder.encode(rawPassword));
         }
     }
 }
@@ -0,0 +1,27 @@
+package com.aqryuz.auth.service;
+
+import org.springframework.stereotype.Component;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resolves the originating client address of a request behind the homelab reverse proxy:
+ * the first {@code X-Forwarded-For} hop, then {@code X-Real-IP}, then the socket peer.
+ */
+@Component
+public class ClientIpResolver {
+
+    public String resolve(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()
+                && !"unknown".equalsIgnoreCase(xForwardedFor)) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
+            return xRealIp;
+        }
+
+        return request.getRemoteAddr();
+    }
+}
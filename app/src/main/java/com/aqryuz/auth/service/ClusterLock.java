@@ -0,0 +1,73 @@
+package com.aqryuz.auth.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.stereotype.Service;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cluster-wide mutual exclusion for background jobs that every node schedules but only one should
+ * run at a time, built on PostgreSQL session advisory locks. A node that finds the lock taken skips
+ * the run instead of waiting, since the holder is doing the same work.
+ *
+ * <p>
+ * The lock is held on a connection of its own for the duration of the task, so the task itself is
+ * free to use as many short transactions as it likes.
+ */
+@Service
+@RequiredArgsConstructor
+public class ClusterLock {
+
+    // Advisory lock keys; one per job, unique across the application
+    public static final long REVOCATION_PURGE = 0x6175_7468_0001L;
+    public static final long EXPIRED_ROW_REAPER = 0x6175_7468_0002L;
+
+    private final DataSource dataSource;
+
+    /**
+     * Run a task unless another node holds the lock
+     *
+     * @return the task's result, or empty if the lock was taken
+     */
+    public <T> Optional<T> callExclusively(long key, Supplier<T> task) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!query(connection, "SELECT pg_try_advisory_lock(?)", key)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(task.get());
+            } finally {
+                query(connection, "SELECT pg_advisory_unlock(?)", key);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Advisory lock " + key + " failed", e);
+        }
+    }
+
+    /**
+     * Run a task unless another node holds the lock
+     *
+     * @return whether the task ran
+     */
+    public boolean runExclusively(long key, Runnable task) {
+        return callExclusively(key, () -> {
+            task.run();
+            return true;
+        }).isPresent();
+    }
+
+    private static boolean query(Connection connection, String sql, long key)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+}
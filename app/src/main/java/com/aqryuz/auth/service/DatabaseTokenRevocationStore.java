@@ -0,0 +1,86 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.aqryuz.auth.entity.RevokedToken;
+import com.aqryuz.auth.repository.RevokedTokenRepository;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * PostgreSQL-backed store. Every node writes its revocations to {@code revoked_tokens} and polls
+ * the table by id to replicate revocations made on other nodes. {@code revoked_at} is taken from the
+ * database clock when the writing transaction starts, so recent rows can be re-read by time
+ * whatever order their ids committed in. Purging is left to whichever node
+ * holds the {@link ClusterLock}, so the nodes do not all delete the same rows every minute.
+ *
+ * <p>
+ * Writes run in a transaction of their own. Callers revoke from inside their own transaction and
+ * keep going when the store fails, so a failed insert must not mark that transaction rollback-only
+ * and undo the session and refresh token deactivation along with it.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.revocation", name = "store", havingValue = "database",
+        matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseTokenRevocationStore implements TokenRevocationStore {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ClusterLock clusterLock;
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void revoke(String revocationKey, Instant expiresAt) {
+        revokedTokenRepository.insertIfAbsent(revocationKey, toLocal(expiresAt));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void revokeAll(Map<String, Instant> revocations) {
+        if (revocations.isEmpty()) {
+            return;
+        }
+        String[] sessionIds = revocations.keySet().toArray(String[]::new);
+        LocalDateTime[] expiresAt = new LocalDateTime[sessionIds.length];
+        for (int i = 0; i < sessionIds.length; i++) {
+            expiresAt[i] = toLocal(revocations.get(sessionIds[i]));
+        }
+        revokedTokenRepository.insertAllIfAbsent(sessionIds, expiresAt);
+    }
+
+    @Override
+    public List<Revocation> findSince(long version, int limit) {
+        return revokedTokenRepository
+                .findByIdGreaterThanOrderByIdAsc(version, PageRequest.of(0, limit)).stream()
+                .map(DatabaseTokenRevocationStore::toRevocation).toList();
+    }
+
+    @Override
+    public List<Revocation> findRecent(Duration window) {
+        return revokedTokenRepository.findRevokedWithin(window.toSeconds()).stream()
+                .map(DatabaseTokenRevocationStore::toRevocation).toList();
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return clusterLock.callExclusively(ClusterLock.REVOCATION_PURGE,
+                () -> revokedTokenRepository.deleteExpired(toLocal(now))).orElse(0);
+    }
+
+    private static Revocation toRevocation(RevokedToken revokedToken) {
+        return new Revocation(revokedToken.getId(), revokedToken.getSessionId(),
+                revokedToken.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
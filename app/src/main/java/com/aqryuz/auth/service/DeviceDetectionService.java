@@ -1,43 +1,56 @@
 package com.aqryuz.auth.service;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 import org.springframework.stereotype.Service;
-import lombok.extern.slf4j.Slf4j;
-
+import com.aqryuz.auth.config.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Device, browser and OS detection from the User-Agent header. A deployment sees the same few
+ * hundred User-Agent strings over and over, so parsed results are kept in a bounded cache and a
+ * repeat login costs one hash lookup. Parsing itself is a single pass over the header that only
+ * allocates for the version it reports.
+ */
 @Service
-@Slf4j
 public class DeviceDetectionService {
 
-    private static final Pattern BROWSER_PATTERN =
-            Pattern.compile("(?i)(firefox|chrome|safari|edge|opera|ie|msie).*?([\\d\\.]+)");
+    // Longer headers are parsed every time rather than letting them inflate the cache
+    private static final int MAX_CACHED_LENGTH = 512;
 
-    private static final Pattern OS_PATTERN =
-            Pattern.compile("(?i)(windows|mac|linux|android|ios|iphone|ipad)");
+    private static final byte[] IPV6_LOOPBACK =
+            {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1};
 
-    private static final Pattern DEVICE_PATTERN =
-            Pattern.compile("(?i)(mobile|tablet|desktop|iphone|ipad|android)");
+    private static final DeviceInfo UNKNOWN_DEVICE = DeviceInfo.builder()
+            .deviceName("Unknown Device").deviceType("Unknown").browserName("Unknown Browser")
+            .browserVersion("Unknown").operatingSystem("Unknown OS").build();
 
-    public DeviceInfo extractDeviceInfo(String userAgent) {
-        if (userAgent == null || userAgent.trim().isEmpty()) {
-            return DeviceInfo.builder().deviceName("Unknown Device").deviceType("Unknown")
-                    .browserName("Unknown Browser").browserVersion("Unknown")
-                    .operatingSystem("Unknown OS").build();
-        }
+    private final GeoIpLocator geoIpLocator;
+    private final Cache<String, DeviceInfo> parsed;
 
-        String browserName = extractBrowserName(userAgent);
-        String browserVersion = extractBrowserVersion(userAgent);
-        String operatingSystem = extractOperatingSystem(userAgent);
-        String deviceType = extractDeviceType(userAgent);
-        String deviceName = generateDeviceName(browserName, operatingSystem, deviceType);
+    public DeviceDetectionService(GeoIpLocator geoIpLocator, AppProperties appProperties,
+            MeterRegistry meterRegistry) {
+        this.geoIpLocator = geoIpLocator;
+        this.parsed = Caffeine.newBuilder()
+                .maximumSize(appProperties.cache().userAgentMaxSize()).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, parsed, "userAgents");
+    }
 
-        return DeviceInfo.builder().deviceName(deviceName).deviceType(deviceType)
-                .browserName(browserName).browserVersion(browserVersion)
-                .operatingSystem(operatingSystem).build();
+    public DeviceInfo extractDeviceInfo(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return UNKNOWN_DEVICE;
+        }
+        if (userAgent.length() > MAX_CACHED_LENGTH) {
+            return parse(userAgent);
+        }
+        return parsed.get(userAgent, DeviceDetectionService::parse);
     }
 
     public String getLocationFromIp(String ipAddress) {
-        // Simple implementation - in production, you might use a GeoIP service
         if (ipAddress == null || ipAddress.trim().isEmpty()) {
             return "Unknown Location";
         }
@@ -47,73 +60,144 @@ public class DeviceDetectionService {
             return "Local Network";
         }
 
-        // For demonstration purposes, return a generic location
-        // In production, integrate with a service like MaxMind GeoIP2 or similar
-        return "Unknown Location";
+        return geoIpLocator.lookup(ipAddress).orElse("Unknown Location");
     }
 
-    private String extractBrowserName(String userAgent) {
-        if (userAgent.contains("Firefox"))
-            return "Firefox";
-        if (userAgent.contains("Chrome") && !userAgent.contains("Edge"))
-            return "Chrome";
-        if (userAgent.contains("Safari") && !userAgent.contains("Chrome"))
-            return "Safari";
-        if (userAgent.contains("Edge"))
+    static DeviceInfo parse(String userAgent) {
+        Map<Keyword, String> found = scan(userAgent);
+
+        String browserName = browserName(found);
+        String browserVersion = browserVersion(browserName, found);
+        String operatingSystem = operatingSystem(found);
+        String deviceType = deviceType(found);
+        String deviceName = generateDeviceName(browserName, operatingSystem, deviceType);
+
+        return DeviceInfo.builder().deviceName(deviceName).deviceType(deviceType)
+                .browserName(browserName).browserVersion(browserVersion)
+                .operatingSystem(operatingSystem).build();
+    }
+
+    /**
+     * Split the header into words and record each known keyword with the version that follows it
+     * ({@code Firefox/121.0}, {@code Windows NT 10.0}, {@code rv:11.0}), or {@code ""} if none
+     * does. Only the first occurrence of a keyword counts.
+     */
+    private static Map<Keyword, String> scan(String userAgent) {
+        Map<Keyword, String> found = new EnumMap<>(Keyword.class);
+        Keyword pending = null;
+        int length = userAgent.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(userAgent.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && isWordChar(userAgent.charAt(i))) {
+                i++;
+            }
+            if (pending != null && Character.isDigit(userAgent.charAt(start))) {
+                found.put(pending, userAgent.substring(start, i));
+                pending = null;
+                continue;
+            }
+            Keyword keyword = Keyword.match(userAgent, start, i - start);
+            pending = keyword != null && found.putIfAbsent(keyword, "") == null ? keyword : null;
+        }
+        return found;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_';
+    }
+
+    /**
+     * Browsers built on Chrome also announce Chrome and Safari, so the more specific ones are
+     * checked first
+     */
+    private static String browserName(Map<Keyword, String> found) {
+        if (found.containsKey(Keyword.EDGE) || found.containsKey(Keyword.EDG))
             return "Edge";
-        if (userAgent.contains("Opera"))
+        if (found.containsKey(Keyword.OPR) || found.containsKey(Keyword.OPERA))
             return "Opera";
-        if (userAgent.contains("MSIE") || userAgent.contains("Trident"))
+        if (found.containsKey(Keyword.FIREFOX) || found.containsKey(Keyword.FXIOS))
+            return "Firefox";
+        if (found.containsKey(Keyword.MSIE) || found.containsKey(Keyword.TRIDENT))
             return "Internet Explorer";
+        if (found.containsKey(Keyword.CHROME) || found.containsKey(Keyword.CRIOS))
+            return "Chrome";
+        if (found.containsKey(Keyword.SAFARI))
+            return "Safari";
         return "Unknown Browser";
     }
 
-    private String extractBrowserVersion(String userAgent) {
-        try {
-            Matcher matcher = BROWSER_PATTERN.matcher(userAgent);
-            if (matcher.find()) {
-                return matcher.group(2);
+    private static String browserVersion(String browserName, Map<Keyword, String> found) {
+        String version = switch (browserName) {
+            case "Edge" -> firstVersion(found, Keyword.EDG, Keyword.EDGE);
+            case "Opera" -> firstVersion(found, Keyword.OPR, Keyword.VERSION, Keyword.OPERA);
+            case "Firefox" -> firstVersion(found, Keyword.FIREFOX, Keyword.FXIOS);
+            case "Internet Explorer" -> firstVersion(found, Keyword.MSIE, Keyword.RV);
+            case "Chrome" -> firstVersion(found, Keyword.CHROME, Keyword.CRIOS);
+            // Safari/ carries the WebKit build; the release is in Version/
+            case "Safari" -> firstVersion(found, Keyword.VERSION, Keyword.SAFARI);
+            default -> null;
+        };
+        return version != null ? version : "Unknown";
+    }
+
+    private static String firstVersion(Map<Keyword, String> found, Keyword... keywords) {
+        for (Keyword keyword : keywords) {
+            String version = found.get(keyword);
+            if (version != null && !version.isEmpty()) {
+                return version;
             }
-        } catch (Exception e) {
-            log.warn("Error extracting browser version from user agent: {}", e.getMessage());
         }
-        return "Unknown";
+        return null;
     }
 
-    private String extractOperatingSystem(String userAgent) {
-        if (userAgent.contains("Windows NT 10.0"))
-            return "Windows 10";
-        if (userAgent.contains("Windows NT 6.3"))
-            return "Windows 8.1";
-        if (userAgent.contains("Windows NT 6.2"))
-            return "Windows 8";
-        if (userAgent.contains("Windows NT 6.1"))
-            return "Windows 7";
-        if (userAgent.contains("Windows"))
-            return "Windows";
-        if (userAgent.contains("Mac OS X"))
+    /**
+     * Mobile platforms are checked first: Android headers also contain Linux and iOS headers
+     * contain "like Mac OS X"
+     */
+    private static String operatingSystem(Map<Keyword, String> found) {
+        if (found.containsKey(Keyword.IPHONE) || found.containsKey(Keyword.IPAD)
+                || found.containsKey(Keyword.IOS))
+            return "iOS";
+        if (found.containsKey(Keyword.ANDROID))
+            return "Android";
+        if (found.containsKey(Keyword.WINDOWS)) {
+            return switch (found.getOrDefault(Keyword.NT, "")) {
+                case "10.0" -> "Windows 10";
+                case "6.3" -> "Windows 8.1";
+                case "6.2" -> "Windows 8";
+                case "6.1" -> "Windows 7";
+                default -> "Windows";
+            };
+        }
+        if (found.containsKey(Keyword.MAC))
             return "macOS";
-        if (userAgent.contains("Linux"))
+        if (found.containsKey(Keyword.LINUX))
             return "Linux";
-        if (userAgent.contains("Android"))
-            return "Android";
-        if (userAgent.contains("iPhone") || userAgent.contains("iOS"))
-            return "iOS";
         return "Unknown OS";
     }
 
-    private String extractDeviceType(String userAgent) {
-        if (userAgent.contains("Mobile") || userAgent.contains("iPhone")
-                || userAgent.contains("Android")) {
+    /**
+     * iPads still send "Mobile", and Android tablets are the Android devices that do not
+     */
+    private static String deviceType(Map<Keyword, String> found) {
+        if (found.containsKey(Keyword.TABLET) || found.containsKey(Keyword.IPAD)) {
+            return "Tablet";
+        }
+        if (found.containsKey(Keyword.MOBILE) || found.containsKey(Keyword.IPHONE)) {
             return "Mobile";
         }
-        if (userAgent.contains("Tablet") || userAgent.contains("iPad")) {
+        if (found.containsKey(Keyword.ANDROID)) {
             return "Tablet";
         }
         return "Desktop";
     }
 
-    private String generateDeviceName(String browser, String os, String deviceType) {
+    private static String generateDeviceName(String browser, String os, String deviceType) {
         if ("Mobile".equals(deviceType)) {
             if (os.contains("iOS")) {
                 return "iPhone";
@@ -133,10 +217,54 @@ public class DeviceDetectionService {
         }
     }
 
-    private boolean isLocalIpAddress(String ipAddress) {
-        return ipAddress.startsWith("127.") || ipAddress.startsWith("192.168.")
-                || ipAddress.startsWith("10.") || ipAddress.startsWith("172.")
-                || ipAddress.equals("::1") || ipAddress.equals("0:0:0:0:0:0:0:1");
+    /**
+     * Loopback or RFC 1918 private address. Prefixes are matched on the parsed address, not the
+     * string: only 172.16.0.0/12 is private, and the rest of 172.0.0.0/8 is public.
+     */
+    private static boolean isLocalIpAddress(String ipAddress) {
+        byte[] address = InetAddressLiterals.parse(ipAddress);
+        if (address == null) {
+            return false;
+        }
+        if (address.length == 16) {
+            return Arrays.equals(address, IPV6_LOOPBACK);
+        }
+        int ipv4 = (address[0] & 0xFF) << 24 | (address[1] & 0xFF) << 16
+                | (address[2] & 0xFF) << 8 | address[3] & 0xFF;
+        return (ipv4 & 0xFF000000) == 0x7F000000 // 127.0.0.0/8
+                || (ipv4 & 0xFF000000) == 0x0A000000 // 10.0.0.0/8
+                || (ipv4 & 0xFFF00000) == 0xAC100000 // 172.16.0.0/12
+                || (ipv4 & 0xFFFF0000) == 0xC0A80000; // 192.168.0.0/16
+    }
+
+    private enum Keyword {
+        FIREFOX("Firefox"), FXIOS("FxiOS"), CHROME("Chrome"), CRIOS("CriOS"), EDGE("Edge"),
+        EDG("Edg"), OPERA("Opera"), OPR("OPR"), MSIE("MSIE"), TRIDENT("Trident"), RV("rv"),
+        SAFARI("Safari"), VERSION("Version"), WINDOWS("Windows"), NT("NT"), MAC("Mac"),
+        LINUX("Linux"), ANDROID("Android"), IPHONE("iPhone"), IPAD("iPad"), IOS("iOS"),
+        MOBILE("Mobile"), TABLET("Tablet");
+
+        private static final Keyword[] VALUES = values();
+
+        private final String word;
+
+        Keyword(String word) {
+            this.word = word;
+        }
+
+        /**
+         * The keyword spelled exactly by {@code userAgent[start, start + length)}, without
+         * allocating the word
+         */
+        static Keyword match(String userAgent, int start, int length) {
+            for (Keyword keyword : VALUES) {
+                if (keyword.word.length() == length
+                        && userAgent.regionMatches(start, keyword.word, 0, length)) {
+                    return keyword;
+                }
+            }
+            return null;
+        }
     }
 
     public static class DeviceInfo {
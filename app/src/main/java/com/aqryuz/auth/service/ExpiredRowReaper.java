@@ -0,0 +1,188 @@
+package com.aqryuz.auth.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.repository.ReapedBatch;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background sweep that keeps {@code refresh_tokens} and {@code user_sessions} from growing
+ * forever. Expired rows are first deactivated, then deleted once they are older than the retention
+ * period. Both phases work in small batches, each its own short transaction, with a pause in
+ * between, so the sweep never holds many row locks or produces an I/O spike.
+ *
+ * <p>
+ * Deactivation walks the expiry index with an in-memory cursor: expiry dates are always in the
+ * future when rows are written, so nothing new can appear behind the cursor. Deletion needs no
+ * cursor because deleted rows leave the index.
+ *
+ * <p>
+ * Every node schedules the sweep, but a {@link ClusterLock} lets only one run it at a time, so
+ * nodes do not contend for the same batches.
+ */
+@Service
+@Slf4j
+public class ExpiredRowReaper {
+
+    private final AppProperties.ReaperProperties properties;
+    private final List<Table> tables;
+    private final ClusterLock clusterLock;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    public ExpiredRowReaper(RefreshTokenRepository refreshTokenRepository,
+            UserSessionRepository userSessionRepository, ClusterLock clusterLock,
+            AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.properties = appProperties.reaper();
+        this.clusterLock = clusterLock;
+        this.tables = List.of(
+                new Table("refresh_tokens", refreshTokenRepository::deactivateExpiredBatch,
+                        refreshTokenRepository::deleteExpiredBatch,
+                        refreshTokenRepository::estimateRowCount, meterRegistry),
+                new Table("user_sessions", userSessionRepository::deactivateExpiredBatch,
+                        userSessionRepository::deleteExpiredBatch,
+                        userSessionRepository::estimateRowCount, meterRegistry));
+
+        if (properties.enabled()) {
+            scheduler.scheduleWithFixedDelay(this::reapSafely, properties.intervalSeconds(),
+                    properties.intervalSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Run one sweep over every table now, unless another node is already sweeping
+     *
+     * @return whether this node ran the sweep
+     */
+    public boolean reap() {
+        return clusterLock.runExclusively(ClusterLock.EXPIRED_ROW_REAPER, this::sweep);
+    }
+
+    private void sweep() {
+        for (Table table : tables) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime retentionCutoff = now.minusDays(properties.retentionDays());
+
+            int deactivated = drain(() -> table.deactivateBatch(retentionCutoff, now));
+            int deleted = drain(() -> table.delete.deleteBatch(retentionCutoff,
+                    properties.batchSize()));
+            table.deactivated.increment(deactivated);
+            table.deleted.increment(deleted);
+            table.rowEstimate.set(table.estimate.getAsLong());
+
+            if (deactivated > 0 || deleted > 0) {
+                log.info("Reaped {}: {} expired rows deactivated, {} deleted", table.name,
+                        deactivated, deleted);
+            }
+        }
+    }
+
+    /**
+     * Run batches until one comes back short or the per-run limit is reached
+     *
+     * @return rows affected in total
+     */
+    private int drain(IntSupplier batch) {
+        int total = 0;
+        for (int i = 0; i < properties.maxBatchesPerRun(); i++) {
+            int affected = batch.getAsInt();
+            total += affected;
+            if (affected < properties.batchSize()) {
+                break;
+            }
+            pause();
+        }
+        return total;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.batchPauseMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reaping expired rows", e);
+        }
+    }
+
+    private void reapSafely() {
+        try {
+            if (!reap()) {
+                log.debug("Skipping sweep, another node is reaping expired rows");
+            }
+        } catch (Exception e) {
+            // Keep the schedule alive; the next sweep picks up where this one failed
+            log.error("Failed to reap expired rows: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface DeactivateBatch {
+        ReapedBatch deactivateBatch(LocalDateTime after, LocalDateTime now, int batchSize);
+    }
+
+    @FunctionalInterface
+    private interface DeleteBatch {
+        int deleteBatch(LocalDateTime cutoff, int batchSize);
+    }
+
+    private final class Table {
+
+        private final String name;
+        private final DeactivateBatch deactivate;
+        private final DeleteBatch delete;
+        private final LongSupplier estimate;
+        private final Counter deactivated;
+        private final Counter deleted;
+        private final AtomicLong rowEstimate = new AtomicLong();
+        // Latest expiry already deactivated; only touched by the sweeping thread
+        private LocalDateTime cursor;
+
+        Table(String name, DeactivateBatch deactivate, DeleteBatch delete, LongSupplier estimate,
+                MeterRegistry meterRegistry) {
+            this.name = name;
+            this.deactivate = deactivate;
+            this.delete = delete;
+            this.estimate = estimate;
+            this.deactivated = Counter.builder("auth.reaper.rows").tag("table", name)
+                    .tag("action", "deactivated").register(meterRegistry);
+            this.deleted = Counter.builder("auth.reaper.rows").tag("table", name)
+                    .tag("action", "deleted").register(meterRegistry);
+            Gauge.builder("auth.table.rows", rowEstimate, AtomicLong::get).tag("table", name)
+                    .description("Planner estimate of the table's row count")
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Rows older than the retention cutoff are about to be deleted, so the walk never needs
+         * to start before it
+         */
+        int deactivateBatch(LocalDateTime retentionCutoff, LocalDateTime now) {
+            if (cursor == null || cursor.isBefore(retentionCutoff)) {
+                cursor = retentionCutoff;
+            }
+            ReapedBatch batch = deactivate.deactivateBatch(cursor, now, properties.batchSize());
+            if (batch.getCursor() != null) {
+                cursor = batch.getCursor();
+            }
+            return (int) batch.getCount();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.aqryuz.auth.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Offline IP-to-location lookup over a CSV range database loaded once at startup. Ranges are held
+ * in sorted primitive arrays, one set for IPv4 and one for IPv6, and an address is resolved by
+ * binary search; recently seen addresses are additionally cached, so the common case of a user
+ * logging in again from the same address skips parsing it.
+ *
+ * <p>
+ * Each line is {@code start,end,location...} or {@code network/prefix,location...}, where
+ * addresses are literals or, as in IP2Location exports, decimal integers. The remaining columns
+ * form the location. Header, comment and malformed lines are skipped, as are ranges overlapping an
+ * earlier one.
+ */
+@Service
+@Slf4j
+public class GeoIpLocator {
+
+    // Cached for addresses outside every range; Caffeine does not store nulls
+    private static final String NO_LOCATION = "";
+
+    private static final BigInteger IPV4_MAPPED_PREFIX = BigInteger.valueOf(0xFFFFL).shiftLeft(32);
+    private static final BigInteger IPV4_MAPPED_MASK = BigInteger.ONE.shiftLeft(32).subtract(
+            BigInteger.ONE);
+
+    private final Ipv4Ranges ipv4;
+    private final Ipv6Ranges ipv6;
+    private final Cache<String, String> locations;
+
+    public GeoIpLocator(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.GeoIpProperties properties = appProperties.geoip();
+        List<Range> ranges = load(properties.databasePath());
+        this.ipv4 = new Ipv4Ranges(ranges.stream().filter(Range::ipv4).toList());
+        this.ipv6 = new Ipv6Ranges(ranges.stream().filter(range -> !range.ipv4()).toList());
+        this.locations = Caffeine.newBuilder().maximumSize(properties.cacheMaxSize())
+                .recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, locations, "geoIpLocations");
+    }
+
+    /**
+     * Location of an address literal; host names are never resolved
+     */
+    public Optional<String> lookup(String ipAddress) {
+        if (ipAddress == null || ipv4.size() + ipv6.size() == 0) {
+            return Optional.empty();
+        }
+        String location = locations.get(ipAddress, this::resolve);
+        return location.isEmpty() ? Optional.empty() : Optional.of(location);
+    }
+
+    private String resolve(String ipAddress) {
+        long ipv4Address = InetAddressLiterals.parseIpv4(ipAddress);
+        if (ipv4Address >= 0) {
+            return ipv4.find((int) ipv4Address);
+        }
+        byte[] address = InetAddressLiterals.parse(ipAddress);
+        if (address == null) {
+            return NO_LOCATION;
+        }
+        // IPv4-mapped IPv6 addresses come back as 4 bytes
+        return address.length == 4
+                ? ipv4.find(toInt(address, 0))
+                : ipv6.find(toLong(address, 0), toLong(address, 8));
+    }
+
+    private static List<Range> load(String databasePath) {
+        if (databasePath == null || databasePath.isBlank()) {
+            log.info("No GeoIP database configured, session locations will not be resolved");
+            return List.of();
+        }
+        List<Range> ranges = new ArrayList<>();
+        // Many ranges share a location, so each distinct one is kept once
+        Map<String, String> distinctLocations = new HashMap<>();
+        int skipped = 0;
+        try (BufferedReader reader =
+                Files.newBufferedReader(Path.of(databasePath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                Range range = parseLine(line);
+                if (range == null) {
+                    skipped++;
+                    continue;
+                }
+                ranges.add(range.withLocation(
+                        distinctLocations.computeIfAbsent(range.location(), l -> l)));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to load GeoIP database {}: {}", databasePath, e.getMessage());
+            return List.of();
+        }
+        log.info("Loaded {} GeoIP ranges ({} distinct locations) from {}, skipped {} lines",
+                ranges.size(), distinctLocations.size(), databasePath, skipped);
+        return ranges;
+    }
+
+    private static Range parseLine(String line) {
+        List<String> columns = splitCsv(line);
+        try {
+            BigInteger start;
+            BigInteger end;
+            boolean ipv4;
+            int locationColumn;
+            int slash = columns.get(0).indexOf('/');
+            if (slash >= 0) {
+                byte[] network = parseAddress(columns.get(0).substring(0, slash));
+                int width = network.length * 8;
+                int hostBits = width - Integer.parseInt(columns.get(0).substring(slash + 1));
+                if (hostBits < 0 || hostBits > width) {
+                    return null;
+                }
+                start = new BigInteger(1, network).shiftRight(hostBits).shiftLeft(hostBits);
+                end = start.add(BigInteger.ONE.shiftLeft(hostBits)).subtract(BigInteger.ONE);
+                ipv4 = network.length == 4;
+                locationColumn = 1;
+            } else {
+                Address first = parseBound(columns.get(0));
+                Address last = parseBound(columns.get(1));
+                if (first.ipv4() != last.ipv4()) {
+                    return null;
+                }
+                start = first.value();
+                end = last.value();
+                ipv4 = first.ipv4();
+                locationColumn = 2;
+            }
+            String location = String.join(", ",
+                    columns.subList(locationColumn, columns.size()).stream()
+                            .filter(column -> !column.isEmpty() && !"-".equals(column))
+                            .toList());
+            if (start.compareTo(end) > 0 || location.isEmpty()) {
+                return null;
+            }
+            return new Range(ipv4, start, end, location);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Header line or malformed row
+            return null;
+        }
+    }
+
+    private static Address parseBound(String value) {
+        if (!value.isEmpty() && value.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            BigInteger number = new BigInteger(value);
+            if (number.bitLength() <= 32) {
+                return new Address(true, number);
+            }
+            if (number.shiftRight(32).equals(IPV4_MAPPED_PREFIX.shiftRight(32))) {
+                return new Address(true, number.and(IPV4_MAPPED_MASK));
+            }
+            if (number.bitLength() > 128) {
+                throw new IllegalArgumentException("Address out of range: " + value);
+            }
+            return new Address(false, number);
+        }
+        byte[] address = parseAddress(value);
+        return new Address(address.length == 4, new BigInteger(1, address));
+    }
+
+    private static byte[] parseAddress(String literal) {
+        byte[] address = InetAddressLiterals.parse(literal);
+        if (address == null) {
+            throw new IllegalArgumentException("Not an address literal: " + literal);
+        }
+        return address;
+    }
+
+    /**
+     * Comma-separated columns, trimmed, with surrounding double quotes removed
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> columns = new ArrayList<>();
+        StringBuilder column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                columns.add(column.toString().trim());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString().trim());
+        return columns;
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        int value = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private record Address(boolean ipv4, BigInteger value) {
+    }
+
+    private record Range(boolean ipv4, BigInteger start, BigInteger end, String location) {
+
+        Range withLocation(String location) {
+            return new Range(ipv4, start, end, location);
+        }
+    }
+
+    /**
+     * Non-overlapping ranges sorted by start; a lookup finds the last range starting at or before
+     * the address and checks that it also ends after it
+     */
+    private static final class Ipv4Ranges {
+
+        private final int[] starts;
+        private final int[] ends;
+        private final String[] locations;
+
+        Ipv4Ranges(List<Range> ranges) {
+            List<Range> sorted = disjoint(ranges);
+            this.starts = new int[sorted.size()];
+            this.ends = new int[sorted.size()];
+            this.locations = new String[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                starts[i] = sorted.get(i).start().intValue();
+                ends[i] = sorted.get(i).end().intValue();
+                locations[i] = sorted.get(i).location();
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        String find(int address) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (Integer.compareUnsigned(starts[mid], address) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high >= 0 && Integer.compareUnsigned(address, ends[high]) <= 0
+                    ? locations[high]
+                    : NO_LOCATION;
+        }
+    }
+
+    /**
+     * Same as {@link Ipv4Ranges} with each 128-bit bound split into two unsigned longs
+     */
+    private static final class Ipv6Ranges {
+
+        private final long[] startHigh;
+        private final long[] startLow;
+        private final long[] endHigh;
+        private final long[] endLow;
+        private final String[] locations;
+
+        Ipv6Ranges(List<Range> ranges) {
+            List<Range> sorted = disjoint(ranges);
+            this.startHigh = new long[sorted.size()];
+            this.startLow = new long[sorted.size()];
+            this.endHigh = new long[sorted.size()];
+            this.endLow = new long[sorted.size()];
+            this.locations = new String[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                Range range = sorted.get(i);
+                startHigh[i] = range.start().shiftRight(64).longValue();
+                startLow[i] = range.start().longValue();
+                endHigh[i] = range.end().shiftRight(64).longValue();
+                endLow[i] = range.end().longValue();
+                locations[i] = range.location();
+            }
+        }
+
+        int size() {
+            return locations.length;
+        }
+
+        String find(long high, long low) {
+            int lowIndex = 0;
+            int highIndex = locations.length - 1;
+            while (lowIndex <= highIndex) {
+                int mid = (lowIndex + highIndex) >>> 1;
+                if (compare(startHigh[mid], startLow[mid], high, low) <= 0) {
+                    lowIndex = mid + 1;
+                } else {
+                    highIndex = mid - 1;
+                }
+            }
+            return highIndex >= 0
+                    && compare(high, low, endHigh[highIndex], endLow[highIndex]) <= 0
+                            ? locations[highIndex]
+                            : NO_LOCATION;
+        }
+
+        private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+            int result = Long.compareUnsigned(aHigh, bHigh);
+            return result != 0 ? result : Long.compareUnsigned(aLow, bLow);
+        }
+    }
+
+    /**
+     * Sort by start and drop every range that overlaps one kept before it
+     */
+    private static List<Range> disjoint(List<Range> ranges) {
+        List<Range> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparing(Range::start));
+        List<Range> kept = new ArrayList<>(sorted.size());
+        for (Range range : sorted) {
+            if (kept.isEmpty() || range.start().compareTo(kept.get(kept.size() - 1).end()) > 0) {
+                kept.add(range);
+            } else {
+                log.debug("Skipping GeoIP range overlapping an earlier one: {}", range);
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,36 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Store for single-node setups that accept losing revocations on restart. The in-memory blacklist
+ * already holds everything, so there is nothing to persist.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.revocation", name = "store", havingValue = "memory")
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    @Override
+    public void revoke(String revocationKey, Instant expiresAt) {
+        // Nothing to persist
+    }
+
+    @Override
+    public List<Revocation> findSince(long version, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<Revocation> findRecent(Duration window) {
+        return List.of();
+    }
+
+    @Override
+    public int purgeExpired(Instant now) {
+        return 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.aqryuz.auth.service;
+
+import java.util.Arrays;
+
+/**
+ * Parser for IP address literals taken from request headers. Unlike
+ * {@link java.net.InetAddress#getByName}, which falls back to the system resolver for anything it
+ * does not recognise, it never performs a lookup, so a forged {@code X-Forwarded-For} cannot make
+ * a request thread wait on DNS.
+ */
+public final class InetAddressLiterals {
+
+    private InetAddressLiterals() {
+    }
+
+    /**
+     * Address bytes of a dotted-quad IPv4 or an IPv6 literal (optionally with a zone id), or
+     * {@code null} if the string is neither. IPv4-mapped IPv6 addresses come back as their 4 IPv4
+     * bytes, as {@code InetAddress} does.
+     */
+    public static byte[] parse(String literal) {
+        if (literal == null || literal.isEmpty()) {
+            return null;
+        }
+        long ipv4 = parseIpv4(literal, 0, literal.length());
+        if (ipv4 >= 0) {
+            return ipv4Bytes(ipv4);
+        }
+        return literal.indexOf(':') >= 0 ? parseIpv6(literal) : null;
+    }
+
+    /**
+     * Dotted-quad IPv4 address as an unsigned 32-bit value, or {@code -1} if it is not one
+     */
+    public static long parseIpv4(String literal) {
+        return parseIpv4(literal, 0, literal.length());
+    }
+
+    private static long parseIpv4(String literal, int from, int to) {
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = literal.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = address << 8 | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return dots == 3 && octet >= 0 ? address << 8 | octet : -1;
+    }
+
+    private static byte[] parseIpv6(String literal) {
+        int zone = literal.indexOf('%');
+        int end = zone >= 0 ? zone : literal.length();
+        int[] groups = new int[8];
+        int count = 0;
+        // Index of the group that "::" stands in front of, or -1 without one
+        int gap = -1;
+        int i = 0;
+
+        if (end < 2 || (literal.charAt(0) == ':' && literal.charAt(1) != ':')) {
+            return null;
+        }
+        if (literal.charAt(0) == ':') {
+            gap = 0;
+            i = 2;
+        }
+        while (i < end) {
+            if (count == 8) {
+                return null;
+            }
+            int start = i;
+            int value = 0;
+            while (i < end && hexValue(literal.charAt(i)) >= 0 && i - start < 4) {
+                value = value << 4 | hexValue(literal.charAt(i));
+                i++;
+            }
+            if (i < end && literal.charAt(i) == '.') {
+                // Trailing dotted quad, as in ::ffff:192.0.2.1
+                long ipv4 = parseIpv4(literal, start, end);
+                if (ipv4 < 0 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+                i = end;
+                break;
+            }
+            if (i == start) {
+                return null;
+            }
+            groups[count++] = value;
+            if (i == end) {
+                break;
+            }
+            if (literal.charAt(i) != ':') {
+                return null;
+            }
+            i++;
+            if (i < end && literal.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = count;
+                i++;
+            } else if (i == end) {
+                return null;
+            }
+        }
+        if (gap < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+
+        byte[] address = new byte[16];
+        int zeros = 8 - count;
+        for (int group = 0; group < count; group++) {
+            int position = gap >= 0 && group >= gap ? group + zeros : group;
+            address[position * 2] = (byte) (groups[group] >>> 8);
+            address[position * 2 + 1] = (byte) groups[group];
+        }
+        return isIpv4Mapped(address) ? Arrays.copyOfRange(address, 12, 16) : address;
+    }
+
+    /**
+     * ASCII only; {@link Character#digit} would also accept other scripts' digits
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) {
+                return false;
+            }
+        }
+        return address[10] == (byte) 0xFF && address[11] == (byte) 0xFF;
+    }
+
+    private static byte[] ipv4Bytes(long address) {
+        return new byte[] {(byte) (address >>> 24), (byte) (address >>> 16),
+                (byte) (address >>> 8), (byte) address};
+    }
+}
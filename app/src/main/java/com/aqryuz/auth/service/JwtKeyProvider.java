@@ -0,0 +1,259 @@
+package com.aqryuz.auth.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import javax.crypto.SecretKey;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.InvalidKeyException;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the JWT key ring: one active signing key plus verify-only keys that are still needed for
+ * tokens issued before the last rotation. Every token carries the {@code kid} of its signing key.
+ * The ring is immutable and swapped atomically when keys retire, and a single parser resolves the
+ * key by {@code kid} against whatever ring is current, so the per-request path never re-derives
+ * key material.
+ *
+ * <p>
+ * {@code app.jwt.algorithm} selects HS256 (shared secret), ES256 or EdDSA (Ed25519). With an
+ * asymmetric algorithm the public keys are published as a JWK set, so resource servers can verify
+ * tokens locally instead of calling back into this server.
+ *
+ * <p>
+ * Keys are rotated through configuration, which every node reads alike: the new secret or key pair
+ * becomes the signing key and the old one moves to {@code app.jwt.previous-secrets} or
+ * {@code app.jwt.previous-public-key-paths}. Previous keys verify (and are published) until every
+ * token they may have signed has expired, so a rollover never forces users to log in again.
+ */
+@Service
+@Slf4j
+public class JwtKeyProvider {
+
+    private static final String HS256 = "HS256";
+    private static final String ES256 = "ES256";
+    private static final String EDDSA = "EdDSA";
+
+    private final String algorithm;
+    private final JwtParser parser;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private volatile KeyRing keyRing;
+
+    public JwtKeyProvider(AppProperties appProperties) {
+        AppProperties.JwtProperties jwt = appProperties.jwt();
+        this.algorithm = jwt.algorithm() == null || jwt.algorithm().isBlank() ? HS256
+                : jwt.algorithm();
+
+        RingKey initial = switch (algorithm) {
+            case HS256 -> hmacKey(
+                    Keys.hmacShaKeyFor(jwt.secret().getBytes(StandardCharsets.UTF_8)));
+            case ES256, EDDSA -> asymmetricKey(loadKeyPair(jwt));
+            default -> throw new IllegalStateException("Unsupported JWT algorithm: " + algorithm
+                    + " (expected HS256, ES256 or EdDSA)");
+        };
+        // Nodes not yet restarted keep signing with a previous key for a while, so it is kept well
+        // past the lifetime of tokens signed right before this start
+        Instant retireAt = Instant.now()
+                .plus(Duration.ofMillis(jwt.expiration() + jwt.refreshExpiration()));
+        Map<String, RingKey> keys = new HashMap<>();
+        for (String secret : jwt.previousSecrets()) {
+            RingKey previous =
+                    hmacKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
+            keys.put(previous.kid(), previous.retiringAt(retireAt));
+        }
+        for (String path : jwt.previousPublicKeyPaths()) {
+            RingKey previous = publicKey(loadPublicKey(path));
+            keys.put(previous.kid(), previous.retiringAt(retireAt));
+        }
+        keys.put(initial.kid(), initial);
+        // Tokens issued before key ids were introduced carry no kid; they belong to the initial key
+        this.keyRing = KeyRing.of(initial, keys, initial.kid());
+        this.parser = Jwts.parser().keyLocator(new LocatorAdapter<Key>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return keyRing.verificationKey(header.getKeyId());
+            }
+        }).build();
+        log.info("JWT signing algorithm: {} (kid {}), {} previous keys verify-only until {}",
+                algorithm, initial.kid(), keys.size() - 1, retireAt);
+
+        scheduler.scheduleAtFixedRate(this::retireExpiredKeys, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Sign the token being built with the active key and stamp its {@code kid}
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        return keyRing.active().signer().apply(builder);
+    }
+
+    /**
+     * Immutable, thread-safe parser that verifies signatures with any key in the current ring
+     */
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Public keys as a JWK set document; empty when tokens are signed with a shared secret
+     */
+    public Map<String, Object> getJwkSet() {
+        return keyRing.jwkSet();
+    }
+
+    /**
+     * Drop verify-only keys whose tokens can no longer be valid
+     */
+    void retireExpiredKeys() {
+        KeyRing current = keyRing;
+        Instant now = Instant.now();
+        Map<String, RingKey> keys = new HashMap<>(current.keys());
+        if (keys.values()
+                .removeIf(key -> key.retireAt() != null && key.retireAt().isBefore(now))) {
+            keyRing = KeyRing.of(current.active(), keys, current.legacyKid());
+            log.info("Retired expired JWT verification keys, {} remaining", keys.size());
+        }
+    }
+
+    private static RingKey hmacKey(SecretKey key) {
+        String kid = Jwks.builder().key(key).idFromThumbprint().build().getId();
+        return new RingKey(kid, builder -> builder.header().keyId(kid).and().signWith(key,
+                Jwts.SIG.HS256), key, null, null);
+    }
+
+    private static RingKey asymmetricKey(KeyPair keyPair) {
+        RingKey verifier = publicKey(keyPair.getPublic());
+        String kid = verifier.kid();
+        SignatureAlgorithm signatureAlgorithm = signatureAlgorithm(keyPair.getPublic());
+        PrivateKey privateKey = keyPair.getPrivate();
+        return new RingKey(kid, builder -> builder.header().keyId(kid).and().signWith(privateKey,
+                signatureAlgorithm), verifier.verificationKey(), verifier.jwk(), null);
+    }
+
+    // Verify-only key; its algorithm follows from the key type
+    private static RingKey publicKey(PublicKey publicKey) {
+        PublicJwk<PublicKey> jwk = Jwks.builder().key(publicKey)
+                .algorithm(signatureAlgorithm(publicKey).getId()).publicKeyUse("sig")
+                .idFromThumbprint().build();
+        return new RingKey(jwk.getId(), null, publicKey, jwk, null);
+    }
+
+    private static SignatureAlgorithm signatureAlgorithm(PublicKey publicKey) {
+        return publicKey instanceof ECPublicKey ? Jwts.SIG.ES256 : Jwts.SIG.EdDSA;
+    }
+
+    /**
+     * Load the PEM encoded key pair configured for an asymmetric algorithm, or generate a
+     * throwaway pair when none is configured (tokens then do not survive a restart).
+     */
+    private KeyPair loadKeyPair(AppProperties.JwtProperties jwt) {
+        boolean ec = ES256.equals(algorithm);
+        Supplier<KeyPair> generator = ec ? () -> Jwts.SIG.ES256.keyPair().build()
+                : () -> Jwks.CRV.Ed25519.keyPair().build();
+        if (jwt.privateKeyPath() == null || jwt.publicKeyPath() == null) {
+            log.warn("No {} key pair configured, generating an ephemeral one", algorithm);
+            return generator.get();
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(ec ? "EC" : "Ed25519");
+            PrivateKey privateKey = keyFactory.generatePrivate(
+                    new PKCS8EncodedKeySpec(readPem(jwt.privateKeyPath())));
+            PublicKey publicKey = keyFactory
+                    .generatePublic(new X509EncodedKeySpec(readPem(jwt.publicKeyPath())));
+            return new KeyPair(publicKey, privateKey);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to load JWT key pair: " + e.getMessage(), e);
+        }
+    }
+
+    private static PublicKey loadPublicKey(String path) {
+        try {
+            X509EncodedKeySpec keySpec = new X509EncodedKeySpec(readPem(path));
+            try {
+                return KeyFactory.getInstance("EC").generatePublic(keySpec);
+            } catch (InvalidKeySpecException e) {
+                return KeyFactory.getInstance("Ed25519").generatePublic(keySpec);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException(
+                    "Failed to load previous JWT public key " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] readPem(String path) throws IOException {
+        String base64 = Files.readString(Path.of(path)).replaceAll("-----[A-Z ]+-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @param signer stamps and signs a token, {@code null} for verify-only keys
+     * @param verificationKey secret key or public key used to check signatures
+     * @param jwk public JWK to publish, {@code null} for shared secrets
+     * @param retireAt when this verify-only key is dropped, {@code null} while it is active
+     */
+    private record RingKey(String kid, UnaryOperator<JwtBuilder> signer, Key verificationKey,
+            PublicJwk<PublicKey> jwk, Instant retireAt) {
+
+        RingKey retiringAt(Instant instant) {
+            return new RingKey(kid, signer, verificationKey, jwk, instant);
+        }
+    }
+
+    private record KeyRing(RingKey active, Map<String, RingKey> keys, String legacyKid,
+            Map<String, Object> jwkSet) {
+
+        static KeyRing of(RingKey active, Map<String, RingKey> keys, String legacyKid) {
+            List<PublicJwk<PublicKey>> jwks =
+                    keys.values().stream().map(RingKey::jwk).filter(Objects::nonNull).toList();
+            return new KeyRing(active, Map.copyOf(keys), legacyKid, Map.of("keys", jwks));
+        }
+
+        Key verificationKey(String kid) {
+            RingKey key = keys.get(kid != null ? kid : legacyKid);
+            if (key == null) {
+                throw new InvalidKeyException("Unknown JWT key id: " + kid);
+            }
+            return key.verificationKey();
+        }
+    }
+}
@@ -4,16 +4,16 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import javax.crypto.SecretKey;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,11 +24,25 @@ public class JwtService {
 
     private final AppProperties appProperties;
     private final TokenBlacklistService tokenBlacklistService;
+    private final JwtKeyProvider jwtKeyProvider;
+    private final TokenRefreshPolicy tokenRefreshPolicy;
+    private final SessionStateCache sessionStateCache;
 
     // Custom claims for session management
-    private static final String CLAIM_FIRST_ISSUED = "firstIssued";
-    private static final String CLAIM_LAST_ACTIVITY = "lastActivity";
+    static final String CLAIM_FIRST_ISSUED = "firstIssued";
+    static final String CLAIM_LAST_ACTIVITY = "lastActivity";
     public static final String CLAIM_SESSION_ID = "sessionId";
+    // Claims that let stateless authentication skip loading the user
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLES = "roles";
+    static final String CLAIM_SECURITY_VERSION = "sv";
+
+    /**
+     * Verify the signature and decode the claims exactly once
+     */
+    public VerifiedToken verify(String token) {
+        return VerifiedToken.of(token, extractAllClaims(token));
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -39,15 +53,34 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Access token opening a new session. The caller records the session (see
+     * {@link UserSessionService#createSession}); tokens of unknown sessions are rejected.
+     */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        return generateToken(userDetails, java.util.UUID.randomUUID().toString());
+    }
+
+    /**
+     * Access token for an existing session, e.g. one renewed through its refresh token
+     */
+    public String generateToken(UserDetails userDetails, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_SESSION_ID, sessionId);
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         // Add session management claims
         extraClaims.put(CLAIM_FIRST_ISSUED, System.currentTimeMillis());
         extraClaims.put(CLAIM_LAST_ACTIVITY, System.currentTimeMillis());
-        extraClaims.put(CLAIM_SESSION_ID, java.util.UUID.randomUUID().toString());
+        extraClaims.putIfAbsent(CLAIM_SESSION_ID, java.util.UUID.randomUUID().toString());
+
+        if (userDetails instanceof User user) {
+            extraClaims.put(CLAIM_USER_ID, user.getId());
+            extraClaims.put(CLAIM_ROLES, user.getRoles().stream().map(Enum::name).toList());
+            extraClaims.put(CLAIM_SECURITY_VERSION, user.getSecurityVersion());
+        }
 
         // Use short expiration for access tokens (15 minutes) for security
         return buildToken(extraClaims, userDetails, 900000L); // 15 minutes in milliseconds
@@ -70,10 +103,39 @@ public class JwtService {
         }
 
         try {
-            Claims claims = extractAllClaims(token);
+            return refreshTokenForActivity(verify(token), userDetails);
+        } catch (Exception e) {
+            log.error("Error refreshing token for activity: {}", e.getMessage());
+            return token;
+        }
+    }
+
+    /**
+     * Sliding window refresh using claims that were already verified for this request
+     */
+    public String refreshTokenForActivity(VerifiedToken verifiedToken, UserDetails userDetails) {
+        return refreshTokenForActivity(verifiedToken, userDetails, false);
+    }
+
+    /**
+     * Sliding window refresh that re-issues even when the token is not yet due, for an explicit
+     * session refresh requested by the client
+     */
+    public String forceRefreshTokenForActivity(VerifiedToken verifiedToken,
+            UserDetails userDetails) {
+        return refreshTokenForActivity(verifiedToken, userDetails, true);
+    }
+
+    private String refreshTokenForActivity(VerifiedToken verifiedToken, UserDetails userDetails,
+            boolean force) {
+        String token = verifiedToken.token();
+        if (!appProperties.jwt().enableSlidingWindow()) {
+            return token; // Return original token if sliding window is disabled
+        }
 
+        try {
             // Check if we're within sliding window threshold
-            Long lastActivity = claims.get(CLAIM_LAST_ACTIVITY, Long.class);
+            Long lastActivity = verifiedToken.lastActivity();
             if (lastActivity != null) {
                 long minutesSinceActivity = ChronoUnit.MINUTES
                         .between(Instant.ofEpochMilli(lastActivity), Instant.now());
@@ -81,7 +143,7 @@ public class JwtService {
                 // Only refresh if activity is within sliding window
                 if (minutesSinceActivity <= appProperties.jwt().slidingWindowMinutes()) {
                     // Check max session duration
-                    Long firstIssued = claims.get(CLAIM_FIRST_ISSUED, Long.class);
+                    Long firstIssued = verifiedToken.firstIssued();
 
                     if (firstIssued != null) {
                         long sessionDurationMinutes = ChronoUnit.MINUTES
@@ -95,16 +157,26 @@ public class JwtService {
                         }
                     }
 
-                    // Create new token with updated activity
-                    Map<String, Object> newClaims = new HashMap<>();
-                    newClaims.put(CLAIM_FIRST_ISSUED, claims.get(CLAIM_FIRST_ISSUED));
-                    newClaims.put(CLAIM_LAST_ACTIVITY, System.currentTimeMillis());
-                    newClaims.put(CLAIM_SESSION_ID, claims.get(CLAIM_SESSION_ID));
-
-                    log.debug("Refreshing token for sliding window activity for user: {}",
-                            userDetails.getUsername());
+                    if (!force && !tokenRefreshPolicy.isDue(verifiedToken)) {
+                        return token; // Still fresh, re-signing would only cost CPU
+                    }
 
-                    return buildToken(newClaims, userDetails, appProperties.jwt().expiration());
+                    // Create new token with updated activity, once per presented token
+                    return tokenRefreshPolicy.reissue(verifiedToken, () -> {
+                        Map<String, Object> newClaims = new HashMap<>();
+                        newClaims.put(CLAIM_FIRST_ISSUED, firstIssued);
+                        newClaims.put(CLAIM_LAST_ACTIVITY, System.currentTimeMillis());
+                        newClaims.put(CLAIM_SESSION_ID, verifiedToken.sessionId());
+                        copyClaim(verifiedToken, newClaims, CLAIM_USER_ID);
+                        copyClaim(verifiedToken, newClaims, CLAIM_ROLES);
+                        copyClaim(verifiedToken, newClaims, CLAIM_SECURITY_VERSION);
+
+                        log.debug("Refreshing token for sliding window activity for user: {}",
+                                userDetails.getUsername());
+
+                        return buildToken(newClaims, userDetails,
+                                appProperties.jwt().expiration());
+                    });
                 }
             }
         } catch (Exception e) {
@@ -114,55 +186,82 @@ public class JwtService {
         return token; // Return original token if refresh not needed or failed
     }
 
+    private static void copyClaim(VerifiedToken verifiedToken, Map<String, Object> claims,
+            String name) {
+        Object value = verifiedToken.claims().get(name);
+        if (value != null) {
+            claims.put(name, value);
+        }
+    }
+
+    /**
+     * Build the principal of a stateless token from its verified claims, without touching the
+     * database. Returns {@code null} for tokens issued without the stateless claims.
+     */
+    public UserDetails principalFromClaims(VerifiedToken verifiedToken) {
+        List<String> roles = verifiedToken.roles();
+        if (roles == null || verifiedToken.securityVersion() == null) {
+            return null;
+        }
+        return org.springframework.security.core.userdetails.User
+                .withUsername(verifiedToken.username()).password("")
+                .authorities(roles.stream().map(role -> "ROLE_" + role).toArray(String[]::new))
+                .build();
+    }
+
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails,
             long expiration) {
-        return Jwts.builder().claims(extraClaims).subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256).compact();
+        return jwtKeyProvider.sign(Jwts.builder().claims(extraClaims)
+                .subject(userDetails.getUsername()).issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(new Date(System.currentTimeMillis() + expiration))).compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
+        return isTokenValid(verify(token), userDetails);
+    }
+
+    /**
+     * Validate a token whose signature has already been verified for this request
+     */
+    public boolean isTokenValid(VerifiedToken verifiedToken, UserDetails userDetails) {
         // Check if token is blacklisted first
-        if (tokenBlacklistService.isTokenBlacklisted(token)) {
+        if (tokenBlacklistService.isBlacklisted(verifiedToken.revocationKey())) {
             log.debug("Token is blacklisted");
             return false;
         }
 
-        final String username = extractUsername(token);
-        if (!username.equals(userDetails.getUsername())) {
+        if (!userDetails.getUsername().equals(verifiedToken.username())) {
             return false;
         }
 
-        if (isTokenExpired(token)) {
+        // A revoked or expired session row stops its tokens, not just a blacklisted token
+        if (!sessionStateCache.isValid(verifiedToken.sessionId())) {
+            log.debug("Session is no longer valid");
+            return false;
+        }
+
+        if (verifiedToken.isExpired()) {
             return false;
         }
 
         // Check session duration limits
-        return isSessionValid(token);
+        return isSessionValid(verifiedToken);
     }
 
     /**
      * Check if the session is still valid based on maximum session duration
      */
-    private boolean isSessionValid(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            Long firstIssued = claims.get(CLAIM_FIRST_ISSUED, Long.class);
+    private boolean isSessionValid(VerifiedToken verifiedToken) {
+        Long firstIssued = verifiedToken.firstIssued();
 
-            if (firstIssued != null) {
-                long sessionDurationMinutes = ChronoUnit.MINUTES
-                        .between(Instant.ofEpochMilli(firstIssued), Instant.now());
+        if (firstIssued != null) {
+            long sessionDurationMinutes =
+                    ChronoUnit.MINUTES.between(Instant.ofEpochMilli(firstIssued), Instant.now());
 
-                if (sessionDurationMinutes >= appProperties.jwt().maxSessionDurationMinutes()) {
-                    log.debug("Session exceeded maximum duration: {} minutes",
-                            sessionDurationMinutes);
-                    return false;
-                }
+            if (sessionDurationMinutes >= appProperties.jwt().maxSessionDurationMinutes()) {
+                log.debug("Session exceeded maximum duration: {} minutes", sessionDurationMinutes);
+                return false;
             }
-        } catch (Exception e) {
-            log.error("Error checking session validity: {}", e.getMessage());
-            return false;
         }
 
         return true;
@@ -173,50 +272,67 @@ public class JwtService {
      */
     public Map<String, Object> getSessionInfo(String token) {
         try {
-            Claims claims = extractAllClaims(token);
-            Map<String, Object> sessionInfo = new HashMap<>();
-
-            sessionInfo.put("username", claims.getSubject());
-            sessionInfo.put("sessionId", claims.get(CLAIM_SESSION_ID));
-            sessionInfo.put("firstIssued", claims.get(CLAIM_FIRST_ISSUED));
-            sessionInfo.put("lastActivity", claims.get(CLAIM_LAST_ACTIVITY));
-            sessionInfo.put("issuedAt", claims.getIssuedAt());
-            sessionInfo.put("expiration", claims.getExpiration());
-
-            return sessionInfo;
+            return getSessionInfo(verify(token));
         } catch (Exception e) {
             log.error("Error extracting session info: {}", e.getMessage());
             return new HashMap<>();
         }
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
+    public Map<String, Object> getSessionInfo(VerifiedToken verifiedToken) {
+        Map<String, Object> sessionInfo = new HashMap<>();
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        sessionInfo.put("username", verifiedToken.username());
+        sessionInfo.put("sessionId", verifiedToken.sessionId());
+        sessionInfo.put("firstIssued", verifiedToken.firstIssued());
+        sessionInfo.put("lastActivity", verifiedToken.lastActivity());
+        sessionInfo.put("issuedAt", verifiedToken.issuedAt());
+        sessionInfo.put("expiration", verifiedToken.expiration());
+
+        return sessionInfo;
     }
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser().verifyWith(getSignInKey()).build().parseSignedClaims(token)
-                    .getPayload();
+            return jwtKeyProvider.getParser().parseSignedClaims(token).getPayload();
         } catch (JwtException e) {
             log.error("Error parsing JWT token: {}", e.getMessage());
             throw e;
         }
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = appProperties.jwt().secret().getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Blacklist a token (for logout functionality). The whole session is revoked, so tokens
+     * re-issued by the sliding window for the same session are rejected as well.
+     */
+    public void blacklistToken(String token) {
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = verify(token);
+        } catch (JwtException e) {
+            log.debug("Not blacklisting token that no longer validates: {}", e.getMessage());
+            return;
+        }
+        tokenBlacklistService.blacklist(verifiedToken.revocationKey(),
+                revocationExpiry(verifiedToken));
     }
 
     /**
-     * Blacklist a token (for logout functionality)
+     * Latest instant at which any token of this session could still validate
      */
-    public void blacklistToken(String token) {
-        tokenBlacklistService.blacklistToken(token);
+    private Instant revocationExpiry(VerifiedToken verifiedToken) {
+        Instant expiry = verifiedToken.expiration() != null
+                ? verifiedToken.expiration().toInstant()
+                : Instant.now().plusMillis(appProperties.jwt().refreshExpiration());
+        Long firstIssued = verifiedToken.firstIssued();
+
+        if (appProperties.jwt().enableSlidingWindow() && firstIssued != null) {
+            Instant sessionEnd = Instant.ofEpochMilli(firstIssued)
+                    .plus(appProperties.jwt().maxSessionDurationMinutes(), ChronoUnit.MINUTES);
+            if (sessionEnd.isAfter(expiry)) {
+                expiry = sessionEnd;
+            }
+        }
+        return expiry;
     }
 }
@@ -0,0 +1,178 @@
+package com.aqryuz.auth.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.exception.RateLimitExceededException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Token-bucket limiter for credential endpoints, applied before any password hashing. Attempts are
+ * charged to the target username, the client address and its /24 (IPv4) or /64 (IPv6) network,
+ * so neither hammering one account nor spreading attempts over a subnet gets through. Buckets are
+ * lock-free and held in bounded caches, so a flood of distinct keys cannot exhaust memory.
+ */
+@Service
+@Slf4j
+public class LoginRateLimiter {
+
+    private final AppProperties.LoginRateLimitProperties properties;
+    private final Scope userScope;
+    private final Scope ipScope;
+    private final Scope subnetScope;
+
+    public LoginRateLimiter(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.properties = appProperties.loginRateLimit();
+        this.userScope = new Scope("user", properties.userBurst(), properties.userPerMinute(),
+                properties.maxTrackedKeys(), meterRegistry);
+        this.ipScope = new Scope("ip", properties.ipBurst(), properties.ipPerMinute(),
+                properties.maxTrackedKeys(), meterRegistry);
+        this.subnetScope = new Scope("subnet", properties.subnetBurst(),
+                properties.subnetPerMinute(), properties.maxTrackedKeys(), meterRegistry);
+    }
+
+    /**
+     * Charge one attempt to every scope, throwing {@link RateLimitExceededException} and charging
+     * none of them if any scope is exhausted
+     *
+     * @param username the account being tried, or {@code null} if the request names none
+     * @param clientIp the resolved client address
+     */
+    public void checkAttempt(String username, String clientIp) {
+        if (!properties.enabled()) {
+            return;
+        }
+        // A scope that rejects the attempt hands back the tokens the scopes before it took, so a
+        // blocked account does not also spend its caller's address and network budget
+        List<Runnable> refunds = new ArrayList<>(3);
+        try {
+            if (clientIp != null) {
+                refunds.add(subnetScope.acquire(subnetOf(clientIp)));
+                refunds.add(ipScope.acquire(clientIp));
+            }
+            if (username != null && !username.isBlank()) {
+                refunds.add(userScope.acquire(username.trim().toLowerCase(Locale.ROOT)));
+            }
+        } catch (RateLimitExceededException e) {
+            refunds.forEach(Runnable::run);
+            throw e;
+        }
+    }
+
+    /**
+     * Network prefix used to group addresses: /24 for IPv4, /64 for IPv6. Anything that is not an
+     * address literal is returned unchanged; header values are never resolved.
+     */
+    static String subnetOf(String ip) {
+        byte[] address = InetAddressLiterals.parse(ip);
+        if (address == null) {
+            return ip;
+        }
+        int prefixBytes = address.length == 4 ? 3 : 8;
+        for (int i = prefixBytes; i < address.length; i++) {
+            address[i] = 0;
+        }
+        try {
+            // Formats the bytes as given; getByAddress never consults a resolver
+            return InetAddress.getByAddress(address).getHostAddress() + "/" + prefixBytes * 8;
+        } catch (UnknownHostException e) {
+            return ip;
+        }
+    }
+
+    private static final class Scope {
+
+        private final String name;
+        private final double capacity;
+        private final double tokensPerNano;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter rejections;
+
+        Scope(String name, int burst, int perMinute, long maxKeys, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.capacity = burst;
+            this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            // An idle bucket is full again after burst / rate, so it can be forgotten by then
+            long refillMinutes = Math.max(1, (long) Math.ceil((double) burst / perMinute));
+            this.buckets = Caffeine.newBuilder().maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofMinutes(refillMinutes)).build();
+            this.rejections = Counter.builder("auth.login.rate_limited").tag("scope", name)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Take one token for the key, returning how to give it back
+         */
+        Runnable acquire(String key) {
+            TokenBucket bucket = buckets.get(key, k -> new TokenBucket(capacity));
+            long waitNanos = bucket.tryConsume(capacity, tokensPerNano);
+            if (waitNanos > 0) {
+                rejections.increment();
+                long retryAfterSeconds = TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1;
+                log.warn("Login rate limit exceeded for {} {}", name, key);
+                throw new RateLimitExceededException(
+                        "Too many login attempts, retry in " + retryAfterSeconds + " seconds",
+                        retryAfterSeconds);
+            }
+            return () -> bucket.refund(capacity);
+        }
+    }
+
+    /**
+     * Bucket state swapped with compare-and-set, so concurrent attempts never block each other
+     */
+    private static final class TokenBucket {
+
+        private final AtomicReference<State> state;
+
+        TokenBucket(double capacity) {
+            this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+        }
+
+        /**
+         * Take one token; returns 0 on success, otherwise nanoseconds until one is available
+         */
+        long tryConsume(double capacity, double tokensPerNano) {
+            while (true) {
+                State current = state.get();
+                long now = System.nanoTime();
+                double tokens = Math.min(capacity,
+                        current.tokens() + (now - current.updatedAt()) * tokensPerNano);
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / tokensPerNano);
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Return a token taken by {@link #tryConsume}, never filling past capacity
+         */
+        void refund(double capacity) {
+            while (true) {
+                State current = state.get();
+                State refunded = new State(Math.min(capacity, current.tokens() + 1),
+                        current.updatedAt());
+                if (state.compareAndSet(current, refunded)) {
+                    return;
+                }
+            }
+        }
+
+        private record State(double tokens, long updatedAt) {
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.aqryuz.auth.service;
+
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Time-partitioned Bloom filter over revocation keys. Each key goes into the partition of the
+ * window its revocation expires in, and a partition is dropped whole once its window is over, so
+ * expired keys are forgotten without rehashing the live ones. Partitions only exist for windows that
+ * received revocations, and the window width is chosen by the caller so that the revocation horizon
+ * spans a bounded number of them. A lookup hashes the key once and reuses the hashes for the few
+ * probes of every partition.
+ *
+ * <p>
+ * A partition that fills up does not get rebuilt either: it chains a new filter with twice the
+ * capacity and half the false positive rate, as in a scalable Bloom filter, so a burst of
+ * revocations (a logout-all) keeps the combined rate near the configured one.
+ */
+final class PartitionedRevocationFilter {
+
+    private final long partitionMillis;
+    private final int initialCapacity;
+    private final double falsePositiveRate;
+    // window index (expiry / partitionMillis) -> filters for keys expiring in that window
+    private final NavigableMap<Long, Partition> partitions = new ConcurrentSkipListMap<>();
+
+    PartitionedRevocationFilter(long partitionMillis, int initialCapacity,
+            double falsePositiveRate) {
+        this.partitionMillis = partitionMillis;
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    void put(String key, long expiresAtMillis) {
+        long hash1 = RevocationBloomFilter.hash1(key);
+        partitions.computeIfAbsent(expiresAtMillis / partitionMillis, window -> new Partition())
+                .put(hash1, RevocationBloomFilter.hash2(hash1));
+    }
+
+    boolean mightContain(String key) {
+        long hash1 = RevocationBloomFilter.hash1(key);
+        long hash2 = RevocationBloomFilter.hash2(hash1);
+        for (Partition partition : partitions.values()) {
+            if (partition.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop every partition whose window ended at or before {@code nowMillis}
+     *
+     * @return the number of partitions dropped
+     */
+    int dropExpired(long nowMillis) {
+        NavigableMap<Long, Partition> expired = partitions.headMap(nowMillis / partitionMillis,
+                false);
+        int dropped = expired.size();
+        expired.clear();
+        return dropped;
+    }
+
+    void clear() {
+        partitions.clear();
+    }
+
+    int partitionCount() {
+        return partitions.size();
+    }
+
+    long sizeInBytes() {
+        return partitions.values().stream().mapToLong(Partition::sizeInBytes).sum();
+    }
+
+    /**
+     * Probability that a key never inserted matches at least one filter
+     */
+    double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Partition partition : partitions.values()) {
+            for (RevocationBloomFilter filter : partition.filters) {
+                allNegative *= 1 - filter.expectedFalsePositiveRate();
+            }
+        }
+        return 1 - allNegative;
+    }
+
+    /**
+     * Filters of one window, newest last. Inserts are serialized per partition; lookups read the
+     * published array without locking.
+     */
+    private final class Partition {
+
+        private volatile RevocationBloomFilter[] filters = {
+                new RevocationBloomFilter(initialCapacity, falsePositiveRate)};
+
+        synchronized void put(long hash1, long hash2) {
+            RevocationBloomFilter current = filters[filters.length - 1];
+            if (current.insertions() >= current.capacity()) {
+                current = new RevocationBloomFilter(current.capacity() * 2,
+                        falsePositiveRate / (1 << filters.length));
+                RevocationBloomFilter[] grown = Arrays.copyOf(filters, filters.length + 1);
+                grown[filters.length] = current;
+                filters = grown;
+            }
+            current.put(hash1, hash2);
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            for (RevocationBloomFilter filter : filters) {
+                if (filter.mightContain(hash1, hash2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long sizeInBytes() {
+            return Arrays.stream(filters).mapToLong(RevocationBloomFilter::sizeInBytes).sum();
+        }
+    }
+}
@@ -4,17 +4,19 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.scheduling.annotation.Scheduled;
+import java.util.UUID;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.config.AppProperties;
 import com.aqryuz.auth.entity.RefreshToken;
 import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.repository.RefreshTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,36 +27,37 @@ import lombok.extern.slf4j.Slf4j;
 @Transactional
 public class RefreshTokenService {
 
+    private static final Duration REUSE_GRACE_PERIOD = Duration.ofSeconds(10);
+
     private final RefreshTokenRepository refreshTokenRepository;
     private final AppProperties appProperties;
     private final SecureRandom secureRandom = new SecureRandom();
     private final DeviceDetectionService deviceDetectionService;
+    private final ClientIpResolver clientIpResolver;
+    private final MeterRegistry meterRegistry;
+    private final SessionRevocationService sessionRevocationService;
+    private final UserSessionService userSessionService;
+    private final SessionStateCache sessionStateCache;
+    private final RefreshTokenTagger refreshTokenTagger;
 
     /**
      * Create a new refresh token for a user
      */
-    public RefreshToken createRefreshToken(User user, boolean rememberMe,
+    public RefreshToken createRefreshToken(User user, String sessionId, boolean rememberMe,
             HttpServletRequest request) {
-        // Deactivate existing tokens if user has too many active sessions
-        long activeTokens = refreshTokenRepository.countActiveTokensForUser(user);
+        // Deactivate the oldest tokens so that, with this one, the user stays within the cap
         int maxSessions = appProperties.deviceManagement().maxSessionsPerUser();
+        int deactivated = refreshTokenRepository.deactivateOldestTokensForUser(user.getId(),
+                Math.max(0, maxSessions - 1));
 
-        if (activeTokens >= maxSessions) {
-            // Deactivate oldest tokens
-            List<RefreshToken> userTokens = refreshTokenRepository.findByUserAndActiveTrue(user);
-            userTokens.stream().sorted((t1, t2) -> t1.getCreatedAt().compareTo(t2.getCreatedAt()))
-                    .limit(activeTokens - maxSessions + 1).forEach(token -> {
-                        token.setActive(false);
-                        refreshTokenRepository.save(token);
-                    });
-
-            log.info("Deactivated old tokens for user: {} (exceeded max sessions: {})",
-                    user.getUsername(), maxSessions);
+        if (deactivated > 0) {
+            log.info("Deactivated {} old tokens for user: {} (exceeded max sessions: {})",
+                    deactivated, user.getUsername(), maxSessions);
         }
 
-        // Generate secure token
-        String token = generateSecureToken();
-        String tokenHash = hashToken(token);
+        // Generate secure token, starting a new family at generation 0
+        String secret = generateSecureToken();
+        UUID familyId = UUID.randomUUID();
 
         // Calculate expiry based on remember me
         LocalDateTime expiryDate = rememberMe ? LocalDateTime.now().plusDays(30) // 30 days for
@@ -66,12 +69,15 @@ public class RefreshTokenService {
         if (userAgent == null || userAgent.trim().isEmpty()) {
             userAgent = "unknown";
         }
-        String ipAddress = getClientIpAddress(request);
+        String ipAddress = clientIpResolver.resolve(request);
         String deviceFingerprint = generateDeviceFingerprint(userAgent, ipAddress);
 
-        RefreshToken refreshToken = RefreshToken.builder().token(token).tokenHash(tokenHash)
-                .user(user).expiryDate(expiryDate).createdAt(LocalDateTime.now())
-                .lastUsedAt(LocalDateTime.now()).deviceFingerprint(deviceFingerprint)
+        RefreshToken refreshToken = RefreshToken.builder()
+                .token(formatToken(familyId, 0, secret)).tokenHash(hashToken(secret))
+                .familyId(familyId).generation(0).sessionId(sessionId).user(user)
+                .expiryDate(expiryDate)
+                .createdAt(LocalDateTime.now()).lastUsedAt(LocalDateTime.now())
+                .deviceFingerprint(deviceFingerprint)
                 .ipAddress(ipAddress).userAgent(userAgent).rememberMe(rememberMe).active(true)
                 .build();
 
@@ -88,28 +94,41 @@ public class RefreshTokenService {
      */
     public Optional<RefreshToken> validateAndRefreshToken(String token,
             HttpServletRequest request) {
-        String tokenHash = hashToken(token);
-
+        // Token rotation: the lookup, expiry check and hash swap are one conditional UPDATE.
+        // Expired rows are left for the cleanup job to deactivate.
+        PresentedToken presented = parse(token);
+        String newSecret = generateSecureToken();
+        LocalDateTime now = LocalDateTime.now();
         Optional<RefreshToken> refreshTokenOpt =
-                refreshTokenRepository.findByTokenHashAndActiveTrue(tokenHash);
+                refreshTokenRepository.rotateToken(hashToken(presented.secret()),
+                        presented.familyId(), presented.generation(), hashToken(newSecret), now);
 
         if (refreshTokenOpt.isEmpty()) {
-            log.warn("Invalid or inactive refresh token");
+            revokeFamilyOnReuse(presented, now);
+            log.warn("Invalid, inactive or expired refresh token");
             return Optional.empty();
         }
 
         RefreshToken refreshToken = refreshTokenOpt.get();
-
-        if (refreshToken.isExpired()) {
-            log.warn("Refresh token expired for user: {}", refreshToken.getUser().getUsername());
+        if (refreshToken.getSessionId() == null) {
+            // Issued before refresh tokens carried their session; open a tracked one now
+            String sessionId = UUID.randomUUID().toString();
+            userSessionService.createSession(refreshToken.getUser(), sessionId, request);
+            refreshToken.setSessionId(sessionId);
+            refreshTokenRepository.save(refreshToken);
+        } else if (!sessionStateCache.isValid(refreshToken.getSessionId())) {
+            // The session was revoked or has run its course; its refresh token goes with it
             refreshToken.setActive(false);
             refreshTokenRepository.save(refreshToken);
+            log.warn("Refresh token presented for ended session {}", refreshToken.getSessionId());
             return Optional.empty();
         }
+        refreshToken.setToken(formatToken(refreshToken.getFamilyId(),
+                refreshToken.getGeneration(), newSecret));
 
         // Security check: verify device fingerprint hasn't changed significantly
         String currentFingerprint = generateDeviceFingerprint(request.getHeader("User-Agent"),
-                getClientIpAddress(request));
+                clientIpResolver.resolve(request));
 
         if (!refreshToken.getDeviceFingerprint().equals(currentFingerprint)) {
             log.warn("Device fingerprint mismatch for user: {} - possible token theft",
@@ -120,28 +139,16 @@ public class RefreshTokenService {
             // 3. Require re-authentication
         }
 
-        // Update last used timestamp
-        refreshToken.setLastUsedAt(LocalDateTime.now());
-
-        // Token rotation: generate new token
-        String newToken = generateSecureToken();
-        String newTokenHash = hashToken(newToken);
-
-        refreshToken.setToken(newToken);
-        refreshToken.setTokenHash(newTokenHash);
-
-        RefreshToken updated = refreshTokenRepository.save(refreshToken);
+        log.debug("Refreshed token for user id: {}", refreshToken.getUser().getId());
 
-        log.debug("Refreshed token for user: {}", refreshToken.getUser().getUsername());
-
-        return Optional.of(updated);
+        return Optional.of(refreshToken);
     }
 
     /**
      * Revoke a specific refresh token
      */
     public void revokeToken(String token) {
-        String tokenHash = hashToken(token);
+        byte[] tokenHash = hashToken(parse(token).secret());
         Optional<RefreshToken> refreshTokenOpt =
                 refreshTokenRepository.findByTokenHashAndActiveTrue(tokenHash);
 
@@ -154,12 +161,31 @@ public class RefreshTokenService {
         }
     }
 
+    /**
+     * A token that no longer matches may have been superseded by a rotation. If its family has
+     * since moved on, someone kept a copy of an old token, so the family is revoked for whoever
+     * holds the current one as well. The immediate predecessor gets a short grace period so that
+     * two tabs refreshing at the same moment are not mistaken for theft.
+     */
+    private void revokeFamilyOnReuse(PresentedToken presented, LocalDateTime now) {
+        if (presented.familyId() == null) {
+            return;
+        }
+        int revoked = refreshTokenRepository.revokeFamilyOnReuse(presented.familyId(),
+                presented.generation(), now.minus(REUSE_GRACE_PERIOD));
+        if (revoked > 0) {
+            meterRegistry.counter("auth.refresh_token.reuse_detected").increment();
+            log.warn("Superseded refresh token of family {} (generation {}) was replayed;"
+                    + " revoked the family", presented.familyId(), presented.generation());
+        }
+    }
+
     /**
      * Revoke all refresh tokens for a user (logout from all devices)
      */
     public void revokeAllTokensForUser(User user) {
-        refreshTokenRepository.deactivateAllTokensForUser(user);
-        log.info("Revoked all refresh tokens for user: {}", user.getUsername());
+        // Access tokens of those devices are revoked along with their refresh tokens
+        sessionRevocationService.revokeAll(user, "logout-all");
     }
 
     /**
@@ -170,12 +196,44 @@ public class RefreshTokenService {
     }
 
     /**
-     * Scheduled cleanup of expired tokens
+     * Cookie value: {@code <familyId>.<generation>.<secret>.<tag>}. Only the secret is hashed and
+     * stored; the prefix lets a rejected token be traced back to its family, and the tag, a MAC
+     * over the other three parts, stops a client from pointing its secret at another family.
+     */
+    private String formatToken(UUID familyId, int generation, String secret) {
+        return familyId + "." + generation + "." + secret + "."
+                + refreshTokenTagger.tag(familyId, generation, secret);
+    }
+
+    /**
+     * Split a refresh token as sent by the client. A prefix is only trusted if its tag verifies;
+     * tokens issued before families existed (a bare secret) or before prefixes were tagged
+     * parse with no family and are rotated by their secret alone.
+     */
+    private PresentedToken parse(String token) {
+        String[] parts = token.split("\\.", 4);
+        if (parts.length >= 3) {
+            try {
+                UUID familyId = UUID.fromString(parts[0]);
+                int generation = Integer.parseInt(parts[1]);
+                if (parts.length == 3) {
+                    return new PresentedToken(null, -1, parts[2]);
+                }
+                if (refreshTokenTagger.verify(familyId, generation, parts[2], parts[3])) {
+                    return new PresentedToken(familyId, generation, parts[2]);
+                }
+                // Forged or corrupted prefix: the whole value matches no stored hash
+            } catch (IllegalArgumentException e) {
+                // Not a family token; treat the whole value as the secret
+            }
+        }
+        return new PresentedToken(null, -1, token);
+    }
+
+    /**
+     * A refresh token as sent by the client, with a family only if its prefix verified
      */
-    @Scheduled(fixedRate = 3600000) // Every hour
-    public void cleanupExpiredTokens() {
-        refreshTokenRepository.deactivateExpiredTokens(LocalDateTime.now());
-        log.debug("Cleaned up expired refresh tokens");
+    private record PresentedToken(UUID familyId, int generation, String secret) {
     }
 
     /**
@@ -190,11 +248,10 @@ public class RefreshTokenService {
     /**
      * Hash a token using SHA-256
      */
-    private String hashToken(String token) {
+    private byte[] hashToken(String token) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hashedBytes = digest.digest(token.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hashedBytes);
+            return digest.digest(token.getBytes(StandardCharsets.UTF_8));
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
@@ -206,23 +263,7 @@ public class RefreshTokenService {
     private String generateDeviceFingerprint(String userAgent, String ipAddress) {
         String combined = (userAgent != null ? userAgent : "unknown") + "|"
                 + (ipAddress != null ? ipAddress : "unknown");
-        return hashToken(combined).substring(0, 16); // Take first 16 chars of hash
-    }
-
-    /**
-     * Extract client IP address from request
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIP = request.getHeader("X-Real-IP");
-        if (xRealIP != null && !xRealIP.isEmpty()) {
-            return xRealIP;
-        }
-
-        return request.getRemoteAddr();
+        // Take first 16 chars of hash
+        return Base64.getEncoder().encodeToString(hashToken(combined)).substring(0, 16);
     }
 }
@@ -0,0 +1,72 @@
+package com.aqryuz.auth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+
+/**
+ * MACs the family prefix of refresh tokens: HMAC-SHA256 truncated to 128 bits under
+ * {@code app.refresh-token.tag-key}, so every node computes the same tag. The key is independent
+ * of JWT signing, so rotating the signing key leaves refresh tokens valid. Tags are made with the
+ * current key and checked against it and {@code app.refresh-token.previous-tag-keys}, which lets
+ * the tag key itself be rotated without logging anyone out.
+ */
+@Service
+public class RefreshTokenTagger {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final List<SecretKeySpec> keys = new ArrayList<>();
+
+    public RefreshTokenTagger(AppProperties appProperties) {
+        AppProperties.RefreshTokenProperties refreshToken = appProperties.refreshToken();
+        if (refreshToken.tagKey() == null || refreshToken.tagKey().isBlank()) {
+            throw new IllegalStateException("app.refresh-token.tag-key must be set");
+        }
+        keys.add(key(refreshToken.tagKey()));
+        refreshToken.previousTagKeys().stream().map(RefreshTokenTagger::key).forEach(keys::add);
+    }
+
+    /**
+     * Tag a token's family prefix and secret with the current key
+     */
+    public String tag(UUID familyId, int generation, String secret) {
+        return tag(keys.get(0), familyId, generation, secret);
+    }
+
+    /**
+     * Check a presented tag against the current and previous keys
+     */
+    public boolean verify(UUID familyId, int generation, String secret, String tag) {
+        byte[] presented = tag.getBytes(StandardCharsets.US_ASCII);
+        return keys.stream().anyMatch(key -> MessageDigest.isEqual(
+                tag(key, familyId, generation, secret).getBytes(StandardCharsets.US_ASCII),
+                presented));
+    }
+
+    private static String tag(SecretKeySpec key, UUID familyId, int generation, String secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] tag = mac.doFinal(("refresh-token:" + familyId + "." + generation + "." + secret)
+                    .getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Arrays.copyOf(tag, 16));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute refresh token tag", e);
+        }
+    }
+
+    private static SecretKeySpec key(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+}
@@ -0,0 +1,125 @@
+package com.aqryuz.auth.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over revocation keys. Lookups are lock-free and touch {@code k} words of
+ * a single bit array, which answers the common "not revoked" case without consulting the exact
+ * blacklist. The filter never forgets, so {@link PartitionedRevocationFilter} keeps one per expiry
+ * window and drops it whole once every key in it has expired.
+ *
+ * <p>
+ * Bit positions are derived from two hashes of the key (double hashing). Callers probing several
+ * filters for the same key compute them once with {@link #hash1} and {@link #hash2}.
+ */
+final class RevocationBloomFilter {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long REMIX = 0xC2B2AE3D27D4EB4FL;
+
+    private final AtomicLongArray words;
+    private final int capacity;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    RevocationBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int expected = Math.max(expectedInsertions, 1);
+        this.capacity = expected;
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * ln2));
+    }
+
+    void put(String key) {
+        long hash1 = hash1(key);
+        put(hash1, hash2(hash1));
+    }
+
+    void put(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    boolean mightContain(String key) {
+        long hash1 = hash1(key);
+        return mightContain(hash1, hash2(hash1));
+    }
+
+    boolean mightContain(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int insertions() {
+        return insertions.get();
+    }
+
+    /**
+     * Number of insertions the filter was sized for
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Size of the bit array in bytes
+     */
+    long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * Theoretical false positive probability for the current number of insertions
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    /**
+     * First hash of a key: one FNV-1a pass over its characters
+     */
+    static long hash1(String key) {
+        long h = SEED;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return fmix(h);
+    }
+
+    /**
+     * Second hash, remixed from the first rather than from the key again; odd, so the probe
+     * sequence visits distinct bits
+     */
+    static long hash2(long hash1) {
+        return fmix(hash1 ^ REMIX) | 1;
+    }
+
+    // murmur3 fmix64 finalizer
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,117 @@
+package com.aqryuz.auth.service;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind tracking of session activity. Requests only record the latest activity per session
+ * in memory; a background flush writes all sessions touched since the previous flush with one
+ * bulk UPDATE per batch. Database writes therefore scale with active sessions per interval rather
+ * than with request volume, and {@code last_activity} lags by at most the flush interval.
+ */
+@Service
+@Slf4j
+public class SessionActivityTracker {
+
+    private final UserSessionRepository userSessionRepository;
+    private final int flushBatchSize;
+    // session id -> latest activity not yet written
+    private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Counter sessionsWritten;
+
+    public SessionActivityTracker(UserSessionRepository userSessionRepository,
+            AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.SessionActivityProperties properties = appProperties.sessionActivity();
+        this.userSessionRepository = userSessionRepository;
+        this.flushBatchSize = properties.flushBatchSize();
+        this.sessionsWritten = Counter.builder("auth.session.activity.flushed")
+                .description("Session activity timestamps written to the database")
+                .register(meterRegistry);
+        Gauge.builder("auth.session.activity.pending", pending, Map::size)
+                .description("Sessions with activity waiting to be flushed")
+                .register(meterRegistry);
+
+        scheduler.scheduleWithFixedDelay(this::flushSafely, properties.flushIntervalSeconds(),
+                properties.flushIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record activity on a session; repeated touches before the next flush coalesce
+     */
+    public void touch(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        pending.merge(sessionId, now, (previous, current) -> current.isAfter(previous)
+                ? current
+                : previous);
+    }
+
+    /**
+     * Write everything recorded so far
+     */
+    public void flush() {
+        Map<String, LocalDateTime> batch = new LinkedHashMap<>();
+        Iterator<String> sessionIds = pending.keySet().iterator();
+        while (sessionIds.hasNext()) {
+            String sessionId = sessionIds.next();
+            // remove() hands over the value atomically; a touch racing with it starts a new entry
+            LocalDateTime lastActivity = pending.remove(sessionId);
+            if (lastActivity != null) {
+                batch.put(sessionId, lastActivity);
+            }
+            if (batch.size() >= flushBatchSize || (!sessionIds.hasNext() && !batch.isEmpty())) {
+                write(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+    }
+
+    private void write(Map<String, LocalDateTime> batch) {
+        try {
+            userSessionRepository.updateLastActivities(batch);
+            sessionsWritten.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Put the batch back unless newer activity arrived meanwhile, and retry next flush
+            batch.forEach((sessionId, lastActivity) -> pending.merge(sessionId, lastActivity,
+                    (current, failed) -> current.isAfter(failed) ? current : failed));
+            throw e;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush session activity: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Last chance to persist activity recorded since the previous flush
+        flushSafely();
+    }
+}
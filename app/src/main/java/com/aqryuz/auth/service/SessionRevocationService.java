@@ -0,0 +1,65 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.repository.UserSessionRepository.RevokedSession;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Signs a user out everywhere: every active session row and refresh token is deactivated with one
+ * statement each, and the revoked session ids are blacklisted in a single write so their access
+ * tokens stop working on every node. Used by logout-everywhere, by disabling an account and by
+ * password changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class SessionRevocationService {
+
+    private final UserSessionRepository userSessionRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final SessionStateCache sessionStateCache;
+    private final AppProperties appProperties;
+
+    /**
+     * @return number of sessions revoked
+     */
+    public int revokeAll(User user, String revokedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        List<RevokedSession> revoked =
+                userSessionRepository.revokeAllActiveSessions(user.getId(), revokedBy, now);
+        int refreshTokens = refreshTokenRepository.deactivateAllTokensForUser(user);
+
+        // A token re-issued just before the session ends can outlive it by one token lifetime
+        Duration tokenLifetime = Duration.ofMillis(appProperties.jwt().expiration());
+        LocalDateTime fallbackEnd =
+                now.plusMinutes(appProperties.jwt().maxSessionDurationMinutes());
+        Map<String, Instant> revocations = new HashMap<>();
+        for (RevokedSession session : revoked) {
+            LocalDateTime sessionEnd =
+                    session.getExpiresAt() != null ? session.getExpiresAt() : fallbackEnd;
+            revocations.put(session.getSessionId(),
+                    sessionEnd.plus(tokenLifetime).atZone(ZoneId.systemDefault()).toInstant());
+            sessionStateCache.invalidate(session.getSessionId());
+        }
+        tokenBlacklistService.blacklistAll(revocations);
+
+        log.info("Revoked {} sessions and {} refresh tokens for user: {} by: {}", revoked.size(),
+                refreshTokens, user.getUsername(), revokedBy);
+        return revoked.size();
+    }
+}
@@ -0,0 +1,83 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Per-node cache of {@code user_sessions} state keyed by session id, so every request can be
+ * checked against its session row with a hash lookup. A session is read on first sight and then
+ * trusted for {@code app.cache.session-state-ttl-seconds}; revocations made through
+ * {@link UserSessionService} evict it at once, while those made on another node take effect
+ * within the TTL.
+ */
+@Service
+public class SessionStateCache {
+
+    private final UserSessionRepository userSessionRepository;
+    private final Cache<String, SessionState> states;
+
+    public SessionStateCache(UserSessionRepository userSessionRepository,
+            AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.CacheProperties cacheProperties = appProperties.cache();
+        this.userSessionRepository = userSessionRepository;
+        this.states = Caffeine.newBuilder().maximumSize(cacheProperties.sessionStateMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheProperties.sessionStateTtlSeconds()))
+                .recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, states, "sessionStates");
+    }
+
+    /**
+     * Whether requests carrying this session id may proceed. Every issued access token has a
+     * session row, so a token without one (or without a session id at all) is rejected.
+     */
+    public boolean isValid(String sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        return states.get(sessionId, this::load).isValid(LocalDateTime.now());
+    }
+
+    /**
+     * Evict a session now and, when called inside a transaction, again after it commits so a
+     * concurrent reader cannot re-cache the pre-commit state.
+     */
+    public void invalidate(String sessionId) {
+        states.invalidate(sessionId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            states.invalidate(sessionId);
+                        }
+                    });
+        }
+    }
+
+    private SessionState load(String sessionId) {
+        return userSessionRepository.findBySessionId(sessionId)
+                .map(session -> new SessionState(session.isActive() && !session.isRevoked(),
+                        session.getExpiresAt()))
+                .orElse(SessionState.UNKNOWN);
+    }
+
+    private record SessionState(boolean active, LocalDateTime expiresAt) {
+
+        static final SessionState UNKNOWN = new SessionState(false, null);
+
+        boolean isValid(LocalDateTime now) {
+            return active && (expiresAt == null || now.isBefore(expiresAt));
+        }
+    }
+}
@@ -1,52 +1,190 @@
 package com.aqryuz.auth.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.service.TokenRevocationStore.Revocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Service to manage blacklisted JWT tokens for proper session management. Tokens are blacklisted
  * when users logout or when admin revokes sessions.
+ *
+ * <p>
+ * Entries are keyed by a compact revocation key (the token's session id) and carry the instant
+ * after which the revoked token could no longer validate anyway. Keys are additionally indexed in
+ * one-minute expiry buckets, so the sweep only touches entries that have actually expired and never
+ * drops a revocation that is still needed.
+ *
+ * <p>
+ * A {@link PartitionedRevocationFilter} sits in front of the exact set. Almost no presented token
+ * is revoked, so most lookups end after a few bit probes. The filter is partitioned by expiry
+ * window, so the sweep forgets expired keys by dropping whole partitions instead of rebuilding.
+ * Windows are sized so the revocation horizon (the longest session plus one token lifetime) spans
+ * a fixed number of them, whatever the configured session length.
+ *
+ * <p>
+ * Revocations are written through to a {@link TokenRevocationStore}. Every node polls the store
+ * for entries newer than the last version it has seen, plus the last minute's entries in case a
+ * lower version committed late, so a revocation made on one node is enforced everywhere within
+ * {@code app.revocation.sync-interval-seconds}, while request-time lookups stay purely in memory.
  */
 @Service
 @Slf4j
 public class TokenBlacklistService {
 
-    private final Set<String> blacklistedTokens = ConcurrentHashMap.newKeySet();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    // Expiry windows the revocation horizon is split into; a lookup probes at most one more
+    private static final int FILTER_PARTITIONS = 24;
+    private static final int MIN_FILTER_CAPACITY = 1024;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final int SYNC_BATCH_SIZE = 500;
+    // Re-read rows this recent, so ones whose ids committed out of order are not skipped; far
+    // longer than any revocation write takes
+    private static final Duration SYNC_LOOKBACK = Duration.ofMinutes(1);
 
-    public TokenBlacklistService() {
-        // Clean up expired tokens every hour
-        scheduler.scheduleAtFixedRate(this::cleanupExpiredTokens, 1, 1, TimeUnit.HOURS);
+    // revocation key -> expiry (epoch millis)
+    private final Map<String, Long> blacklistedKeys = new ConcurrentHashMap<>();
+    // expiry bucket -> revocation keys expiring within that bucket
+    private final NavigableMap<Long, Set<String>> expiryBuckets = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final PartitionedRevocationFilter revocationFilter;
+    private final TokenRevocationStore tokenRevocationStore;
+    private long syncedVersion = 0;
+
+    private final Counter filterNegatives;
+    private final Counter filterPositives;
+    private final Counter filterFalsePositives;
+
+    public TokenBlacklistService(MeterRegistry meterRegistry,
+            TokenRevocationStore tokenRevocationStore, AppProperties appProperties) {
+        this.tokenRevocationStore = tokenRevocationStore;
+        // A revocation expires at the latest one token lifetime after the longest session ends
+        long horizonMillis = TimeUnit.MINUTES.toMillis(
+                appProperties.jwt().maxSessionDurationMinutes()) + appProperties.jwt().expiration();
+        this.revocationFilter = new PartitionedRevocationFilter(
+                Math.max(BUCKET_MILLIS, Math.ceilDiv(horizonMillis, FILTER_PARTITIONS)),
+                MIN_FILTER_CAPACITY, FILTER_FALSE_POSITIVE_RATE);
+        this.filterNegatives = Counter.builder("auth.blacklist.filter.checks")
+                .tag("result", "negative").register(meterRegistry);
+        this.filterPositives = Counter.builder("auth.blacklist.filter.checks")
+                .tag("result", "positive").register(meterRegistry);
+        this.filterFalsePositives = Counter.builder("auth.blacklist.filter.checks")
+                .tag("result", "false_positive").register(meterRegistry);
+        Gauge.builder("auth.blacklist.size", blacklistedKeys, Map::size)
+                .description("Revocations currently held in memory").register(meterRegistry);
+        Gauge.builder("auth.blacklist.filter.bytes", revocationFilter,
+                PartitionedRevocationFilter::sizeInBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.blacklist.filter.expected.fpp", revocationFilter,
+                PartitionedRevocationFilter::expectedFalsePositiveRate).register(meterRegistry);
+        Gauge.builder("auth.blacklist.filter.partitions", revocationFilter,
+                PartitionedRevocationFilter::partitionCount).register(meterRegistry);
+
+        // Load persisted revocations, then keep pulling those made by other nodes
+        scheduler.scheduleWithFixedDelay(this::syncFromStore, 0,
+                appProperties.revocation().syncIntervalSeconds(), TimeUnit.SECONDS);
+        // Evict expired revocations every minute
+        scheduler.scheduleAtFixedRate(this::cleanupExpiredTokens, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Blacklist a token (when user logs out) until the given expiry
+     */
+    public void blacklist(String revocationKey, Instant expiresAt) {
+        if (!addLocal(revocationKey, expiresAt)) {
+            return;
+        }
+        log.info("Token blacklisted: {} (until {})", revocationKey, expiresAt);
+
+        try {
+            tokenRevocationStore.revoke(revocationKey, expiresAt);
+        } catch (Exception e) {
+            // Still enforced on this node; other nodes will not see it
+            log.error("Failed to persist revocation {}: {}", revocationKey, e.getMessage());
+        }
     }
 
     /**
-     * Blacklist a token (when user logs out)
+     * Blacklist many sessions at once, persisting them in a single write
      */
-    public void blacklistToken(String token) {
-        if (token != null && !token.trim().isEmpty()) {
-            blacklistedTokens.add(token);
-            log.info("Token blacklisted: {}...", token.substring(0, Math.min(10, token.length())));
+    public void blacklistAll(Map<String, Instant> revocations) {
+        Map<String, Instant> added = new HashMap<>();
+        revocations.forEach((revocationKey, expiresAt) -> {
+            if (addLocal(revocationKey, expiresAt)) {
+                added.put(revocationKey, expiresAt);
+            }
+        });
+        if (added.isEmpty()) {
+            return;
+        }
+        log.info("Blacklisted {} sessions", added.size());
+
+        try {
+            tokenRevocationStore.revokeAll(added);
+        } catch (Exception e) {
+            // Still enforced on this node; other nodes will not see them
+            log.error("Failed to persist {} revocations: {}", added.size(), e.getMessage());
         }
     }
 
+    private boolean addLocal(String revocationKey, Instant expiresAt) {
+        if (revocationKey == null || revocationKey.isBlank() || expiresAt == null) {
+            return false;
+        }
+
+        long expiry = expiresAt.toEpochMilli();
+        if (expiry <= System.currentTimeMillis()) {
+            return false; // Token can no longer validate, nothing to remember
+        }
+
+        // Filter first, so a lookup that finds the key in the exact set always passes the filter
+        revocationFilter.put(revocationKey, expiry);
+        blacklistedKeys.merge(revocationKey, expiry, Math::max);
+        expiryBuckets.computeIfAbsent(expiry / BUCKET_MILLIS, b -> ConcurrentHashMap.newKeySet())
+                .add(revocationKey);
+        return true;
+    }
+
     /**
      * Check if a token is blacklisted
      */
-    public boolean isTokenBlacklisted(String token) {
-        return token != null && blacklistedTokens.contains(token);
+    public boolean isBlacklisted(String revocationKey) {
+        if (revocationKey == null) {
+            return false;
+        }
+        if (!revocationFilter.mightContain(revocationKey)) {
+            filterNegatives.increment();
+            return false;
+        }
+
+        Long expiry = blacklistedKeys.get(revocationKey);
+        boolean blacklisted = expiry != null && expiry > System.currentTimeMillis();
+        (blacklisted ? filterPositives : filterFalsePositives).increment();
+        return blacklisted;
     }
 
     /**
      * Remove a token from blacklist (mainly for testing)
      */
-    public void removeFromBlacklist(String token) {
-        if (token != null) {
-            blacklistedTokens.remove(token);
+    public void removeFromBlacklist(String revocationKey) {
+        if (revocationKey != null) {
+            blacklistedKeys.remove(revocationKey);
         }
     }
 
@@ -54,32 +192,88 @@ public class TokenBlacklistService {
      * Get current blacklist size (for monitoring)
      */
     public int getBlacklistSize() {
-        return blacklistedTokens.size();
+        return blacklistedKeys.size();
     }
 
     /**
      * Clear all blacklisted tokens (for testing or maintenance)
      */
     public void clearBlacklist() {
-        blacklistedTokens.clear();
+        blacklistedKeys.clear();
+        revocationFilter.clear();
+        expiryBuckets.clear();
         log.info("Token blacklist cleared");
     }
 
     /**
-     * Clean up expired tokens from blacklist to prevent memory leaks. Since we can't easily
-     * determine expiration from stored tokens, we'll implement a simple time-based cleanup.
+     * Drop revocations whose tokens have expired. Only buckets that lie entirely in the past are
+     * visited, so the cost is proportional to the number of expired entries.
+     */
+    void cleanupExpiredTokens() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+
+        NavigableMap<Long, Set<String>> expired = expiryBuckets.headMap(now / BUCKET_MILLIS, false);
+        for (Map.Entry<Long, Set<String>> bucket : expired.entrySet()) {
+            for (String key : bucket.getValue()) {
+                // A key re-blacklisted with a later expiry stays until its own bucket is swept
+                Long expiry = blacklistedKeys.get(key);
+                if (expiry != null && expiry <= now && blacklistedKeys.remove(key, expiry)) {
+                    removed++;
+                }
+            }
+            expired.remove(bucket.getKey());
+        }
+
+        int droppedPartitions = revocationFilter.dropExpired(now);
+
+        log.debug("Blacklist cleanup: removed {} expired entries and {} filter partitions,"
+                + " {} remaining", removed, droppedPartitions, blacklistedKeys.size());
+
+        try {
+            tokenRevocationStore.purgeExpired(Instant.ofEpochMilli(now));
+        } catch (Exception e) {
+            log.warn("Failed to purge expired revocations from store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply revocations recorded by any node since the last sync. Normally runs on the scheduler
+     * thread; synchronized so an explicit call cannot race it on {@code syncedVersion}.
      */
-    private void cleanupExpiredTokens() {
-        // For now, we'll clear tokens older than 24 hours
-        // In a production environment, you might want to store tokens with their expiration times
-        int sizeBefore = blacklistedTokens.size();
-
-        // Simple cleanup - in production you'd want to store expiration times with tokens
-        if (sizeBefore > 10000) { // Prevent memory issues
-            blacklistedTokens.clear();
-            log.info("Blacklist cleanup: cleared {} tokens due to size limit", sizeBefore);
-        } else {
-            log.debug("Blacklist cleanup: {} tokens in blacklist", sizeBefore);
+    public synchronized void syncFromStore() {
+        try {
+            int applied = 0;
+            List<Revocation> batch;
+            do {
+                batch = tokenRevocationStore.findSince(syncedVersion, SYNC_BATCH_SIZE);
+                applied += apply(batch);
+            } while (batch.size() == SYNC_BATCH_SIZE);
+            // Rows that committed after a higher version was already synced
+            applied += apply(tokenRevocationStore.findRecent(SYNC_LOOKBACK));
+            if (applied > 0) {
+                log.debug("Applied {} revocations from store (version {})", applied,
+                        syncedVersion);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sync revocations from store: {}", e.getMessage());
         }
     }
+
+    private int apply(List<Revocation> revocations) {
+        int applied = 0;
+        for (Revocation revocation : revocations) {
+            if (!blacklistedKeys.containsKey(revocation.revocationKey())
+                    && addLocal(revocation.revocationKey(), revocation.expiresAt())) {
+                applied++;
+            }
+            syncedVersion = Math.max(syncedVersion, revocation.version());
+        }
+        return applied;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
 }
@@ -0,0 +1,93 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Service;
+import com.aqryuz.auth.config.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decides when a sliding-window token is worth re-signing and coalesces re-issues.
+ *
+ * <p>
+ * A token is only re-issued once {@code app.jwt.refresh-threshold} of its lifetime, or of the
+ * sliding window since its last recorded activity, has elapsed. Requests presenting the same token
+ * while a replacement is (or was just) issued receive that same replacement, so a burst of
+ * parallel calls from one client costs a single signature and yields a single new token.
+ */
+@Service
+public class TokenRefreshPolicy {
+
+    private static final Duration REISSUE_MEMO_TTL = Duration.ofSeconds(30);
+    private static final long REISSUE_MEMO_MAX_SIZE = 10_000;
+
+    private final AppProperties appProperties;
+    // session id + issued-at of the presented token -> the token that replaced it
+    private final Cache<String, String> reissued = Caffeine.newBuilder()
+            .maximumSize(REISSUE_MEMO_MAX_SIZE).expireAfterWrite(REISSUE_MEMO_TTL).build();
+
+    private final Counter issuedCounter;
+    private final Counter coalescedCounter;
+    private final Counter skippedCounter;
+
+    public TokenRefreshPolicy(AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.appProperties = appProperties;
+        this.issuedCounter = Counter.builder("auth.token.reissue").tag("result", "issued")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("auth.token.reissue").tag("result", "coalesced")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder("auth.token.reissue").tag("result", "not_due")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether enough of the token's lifetime or sliding window has passed to justify re-signing it
+     */
+    public boolean isDue(VerifiedToken verifiedToken) {
+        double threshold = appProperties.jwt().refreshThreshold();
+        long now = System.currentTimeMillis();
+
+        boolean due = verifiedToken.issuedAt() == null || verifiedToken.expiration() == null
+                || elapsedFraction(verifiedToken.issuedAt().getTime(),
+                        verifiedToken.expiration().getTime(), now) >= threshold;
+        if (!due && verifiedToken.lastActivity() != null) {
+            // Keep the recorded activity fresh enough for the sliding window check
+            long window = TimeUnit.MINUTES.toMillis(appProperties.jwt().slidingWindowMinutes());
+            due = now - verifiedToken.lastActivity() >= threshold * window;
+        }
+
+        if (!due) {
+            skippedCounter.increment();
+        }
+        return due;
+    }
+
+    /**
+     * Replacement for the given token, issuing it at most once however many requests present the
+     * token concurrently
+     */
+    public String reissue(VerifiedToken verifiedToken, Supplier<String> issuer) {
+        boolean[] issued = new boolean[1];
+        String token = reissued.get(memoKey(verifiedToken), key -> {
+            issued[0] = true;
+            return issuer.get();
+        });
+        (issued[0] ? issuedCounter : coalescedCounter).increment();
+        return token;
+    }
+
+    private static double elapsedFraction(long issuedAt, long expiresAt, long now) {
+        long lifetime = expiresAt - issuedAt;
+        return lifetime <= 0 ? 1.0 : (double) (now - issuedAt) / lifetime;
+    }
+
+    private static String memoKey(VerifiedToken verifiedToken) {
+        return verifiedToken.issuedAt() != null
+                ? verifiedToken.revocationKey() + ':' + verifiedToken.issuedAt().getTime()
+                : verifiedToken.token();
+    }
+}
@@ -0,0 +1,44 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable store behind {@link TokenBlacklistService}. The blacklist keeps every live revocation in
+ * memory and uses the store to survive restarts and to share revocations between nodes.
+ */
+public interface TokenRevocationStore {
+
+    /**
+     * Persist a revocation. Revoking an already revoked key is a no-op.
+     */
+    void revoke(String revocationKey, Instant expiresAt);
+
+    /**
+     * Persist many revocations at once, e.g. every session of a user
+     */
+    default void revokeAll(Map<String, Instant> revocations) {
+        revocations.forEach(this::revoke);
+    }
+
+    /**
+     * Revocations recorded after the given version, oldest first
+     */
+    List<Revocation> findSince(long version, int limit);
+
+    /**
+     * Revocations recorded within the given window, whatever their version. Versions are drawn
+     * before commit, so a long write can commit below a version a node has already synced past.
+     */
+    List<Revocation> findRecent(Duration window);
+
+    /**
+     * Remove revocations whose tokens can no longer validate
+     */
+    int purgeExpired(Instant now);
+
+    record Revocation(long version, String revocationKey, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.aqryuz.auth.service;
+
+import java.time.Duration;
+import java.util.function.Function;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.aqryuz.auth.config.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded, TTL-based cache of principals resolved by the JWT filter, keyed by username. Every
+ * change to a user that affects authentication must call {@link #invalidate(String)}.
+ *
+ * <p>
+ * Entries are shared by every request thread, so they are immutable snapshots rather than the
+ * managed {@link com.aqryuz.auth.entity.User} entity.
+ */
+@Service
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> users;
+    private final Cache<String, Integer> securityVersions;
+
+    public UserDetailsCache(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.CacheProperties cacheProperties = appProperties.cache();
+        this.users = Caffeine.newBuilder().maximumSize(cacheProperties.userDetailsMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheProperties.userDetailsTtlSeconds()))
+                .recordStats().build();
+        this.securityVersions = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.userDetailsMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(cacheProperties.securityVersionTtlSeconds()))
+                .recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userDetails");
+        CaffeineCacheMetrics.monitor(meterRegistry, securityVersions, "securityVersions");
+    }
+
+    /**
+     * Cached principal, loading it on a miss. A loader returning {@code null} is not cached.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        return users.get(username, loader);
+    }
+
+    /**
+     * Cached security version of a user, loading it on a miss
+     */
+    public Integer getSecurityVersion(String username, Function<String, Integer> loader) {
+        return securityVersions.get(username, loader);
+    }
+
+    /**
+     * Evict a user now and, when called inside a transaction, again after it commits so a
+     * concurrent reader cannot re-cache the pre-commit state.
+     */
+    public void invalidate(String username) {
+        users.invalidate(username);
+        securityVersions.invalidate(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            users.invalidate(username);
+                            securityVersions.invalidate(username);
+                        }
+                    });
+        }
+    }
+
+    public void invalidateAll() {
+        users.invalidateAll();
+        securityVersions.invalidateAll();
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import com.aqryuz.auth.config.AppProperties;
 import com.aqryuz.auth.dto.UserCreateRequest;
@@ -18,6 +19,7 @@ import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.exception.UserNotFoundException;
 import com.aqryuz.auth.exception.UserUpdateException;
 import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserRepository.FailedLoginResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,6 +35,8 @@ public class UserService implements UserDetailsService {
     private final PasswordEncoder passwordEncoder;
     private final TotpService totpService;
     private final AppProperties appProperties;
+    private final UserDetailsCache userDetailsCache;
+    private final SessionRevocationService sessionRevocationService;
 
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
@@ -40,6 +44,55 @@ public class UserService implements UserDetailsService {
                 () -> new UsernameNotFoundException("User not found: " + usernameOrEmail));
     }
 
+    /**
+     * Resolve the principal of an already authenticated token. Served from
+     * {@link UserDetailsCache}, so steady-state traffic does not touch the database; runs without
+     * a transaction so a cache hit does not check out a connection either.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserDetails loadUserByUsernameCached(String username) throws UsernameNotFoundException {
+        UserDetails principal = userDetailsCache.get(username,
+                key -> userRepository.findByUsername(key).map(UserService::principalOf)
+                        .orElse(null));
+        if (principal == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        return principal;
+    }
+
+    /**
+     * Immutable copy of what the JWT filter checks. The password hash is left out; an
+     * authenticated token never needs it.
+     */
+    private static UserDetails principalOf(User user) {
+        return org.springframework.security.core.userdetails.User
+                .withUsername(user.getUsername()).password("")
+                .authorities(user.getAuthorities()).disabled(!user.isEnabled())
+                .accountLocked(!user.isAccountNonLocked()).build();
+    }
+
+    /**
+     * Whether a stateless token's security version still matches the user. Answered from
+     * {@link UserDetailsCache}; a deleted user never matches.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean isSecurityVersionCurrent(String username, int securityVersion) {
+        Integer current = userDetailsCache.getSecurityVersion(username,
+                key -> userRepository.findSecurityVersionByUsername(key).orElse(null));
+        return current != null && current == securityVersion;
+    }
+
+    /**
+     * Store a re-encoded hash after a successful login whose stored hash used an outdated
+     * algorithm or work factor. The password itself is unchanged, so the security version is kept.
+     * Only the hash column is written; the rest of the entity is left as loaded.
+     */
+    public void upgradePasswordHash(User user, String newEncodedPassword) {
+        userRepository.updatePasswordHash(user.getId(), newEncodedPassword, LocalDateTime.now());
+        userDetailsCache.invalidate(user.getUsername());
+        log.info("Password hash upgraded for user: {}", user.getUsername());
+    }
+
     public UserInfo createUser(UserCreateRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new IllegalArgumentException("Username already exists");
@@ -79,23 +132,39 @@ public class UserService implements UserDetailsService {
             user.setLastName(request.getLastName());
         }
 
+        // A new password or a disabled account signs the user out everywhere
+        boolean revokeSessions = false;
+
         if (request.getPassword() != null && !request.getPassword().isBlank()) {
             user.setPassword(passwordEncoder.encode(request.getPassword()));
+            user.incrementSecurityVersion();
+            revokeSessions = true;
         }
 
-        if (request.getAccountEnabled() != null) {
+        if (request.getAccountEnabled() != null
+                && request.getAccountEnabled() != user.isAccountEnabled()) {
             user.setAccountEnabled(request.getAccountEnabled());
+            user.incrementSecurityVersion();
+            revokeSessions |= !user.isAccountEnabled();
         }
 
-        if (request.getAccountLocked() != null) {
+        if (request.getAccountLocked() != null
+                && request.getAccountLocked() != user.isAccountLocked()) {
             user.setAccountLocked(request.getAccountLocked());
+            user.incrementSecurityVersion();
         }
 
-        if (request.getRoles() != null && !request.getRoles().isEmpty()) {
+        if (request.getRoles() != null && !request.getRoles().isEmpty()
+                && !request.getRoles().equals(user.getRoles())) {
             user.setRoles(request.getRoles());
+            user.incrementSecurityVersion();
         }
 
         User savedUser = userRepository.save(user);
+        userDetailsCache.invalidate(savedUser.getUsername());
+        if (revokeSessions) {
+            sessionRevocationService.revokeAll(savedUser, "account-update");
+        }
         log.info("Updated user: {}", savedUser.getUsername());
 
         return UserInfo.fromUser(savedUser);
@@ -106,6 +175,7 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new IllegalArgumentException(USER_NOT_FOUND));
 
         userRepository.delete(user);
+        userDetailsCache.invalidate(user.getUsername());
         log.info("Deleted user: {}", user.getUsername());
     }
 
@@ -157,6 +227,7 @@ public class UserService implements UserDetailsService {
 
         user.setTotpEnabled(true);
         userRepository.save(user);
+        userDetailsCache.invalidate(username);
         log.info("TOTP enabled for user: {}", username);
     }
 
@@ -167,13 +238,20 @@ public class UserService implements UserDetailsService {
         user.setTotpEnabled(false);
         user.setTotpSecret(null);
         userRepository.save(user);
+        userDetailsCache.invalidate(username);
         log.info("TOTP disabled for user: {}", username);
     }
 
     public boolean verifyTotpCode(String username, String totpCode) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException(USER_NOT_FOUND));
+        return verifyTotpCode(user, totpCode);
+    }
 
+    /**
+     * Verify a TOTP code against a user that has already been loaded
+     */
+    public boolean verifyTotpCode(User user, String totpCode) {
         if (!user.isTotpEnabled() || user.getTotpSecret() == null) {
             return false;
         }
@@ -188,45 +266,28 @@ public class UserService implements UserDetailsService {
         if (updated == 0) {
             throw new UserUpdateException("Failed to update last login for user: " + username);
         }
+        userDetailsCache.invalidate(username);
     }
 
     @Transactional
     public void incrementFailedLoginAttempts(String username) {
-        User user = userRepository.findByUsername(username)
+        AppProperties.SecurityProperties security = appProperties.security();
+        FailedLoginResult result = userRepository
+                .recordFailedLogin(username, security.maxFailedAttempts(),
+                        security.lockoutDurationMinutes(), security.progressiveLockout(),
+                        LocalDateTime.now())
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
 
-        // Check if user is currently locked and if lockout period has expired
-        if (user.isAccountLocked() && user.getLockoutTime() != null) {
-            LocalDateTime now = LocalDateTime.now();
-            long lockoutDurationMinutes = appProperties.security().lockoutDurationMinutes();
-
-            if (now.isAfter(user.getLockoutTime().plusMinutes(lockoutDurationMinutes))) {
-                // Lockout period has expired, unlock the account
-                LocalDateTime unlockTime = LocalDateTime.now();
-                int updated = userRepository.unlockAccount(username, unlockTime);
-                if (updated > 0) {
-                    log.info("Account automatically unlocked due to expired lockout period: {}",
-                            username);
-                }
-                return;
-            }
-        }
-
-        int newAttempts = user.getFailedLoginAttempts() + 1;
-        int maxAttempts = appProperties.security().maxFailedAttempts();
-        LocalDateTime now = LocalDateTime.now();
-
-        if (newAttempts >= maxAttempts) {
-            // Calculate lockout duration (progressive lockout if enabled)
-            long lockoutDuration = calculateLockoutDuration(newAttempts);
-            LocalDateTime lockoutTime = now.plusMinutes(lockoutDuration);
-
-            userRepository.lockAccount(username, newAttempts, lockoutTime, now);
+        int attempts = result.getFailedLoginAttempts();
+        if (attempts == 0) {
+            userDetailsCache.invalidate(username);
+            log.info("Account automatically unlocked due to expired lockout period: {}", username);
+        } else if (result.getAccountLocked()) {
+            userDetailsCache.invalidate(username);
             log.warn("Account locked after {} failed attempts: {} (lockout duration: {} minutes)",
-                    newAttempts, username, lockoutDuration);
+                    attempts, username, calculateLockoutDuration(attempts));
         } else {
-            userRepository.updateFailedLoginAttempts(username, newAttempts, now);
-            log.warn("Failed login attempt #{} for user: {}", newAttempts, username);
+            log.warn("Failed login attempt #{} for user: {}", attempts, username);
         }
     }
 
@@ -234,6 +295,7 @@ public class UserService implements UserDetailsService {
     public void unlockAccount(String username) {
         LocalDateTime now = LocalDateTime.now();
         int updated = userRepository.unlockAccount(username, now);
+        userDetailsCache.invalidate(username);
         if (updated > 0) {
             log.info("Account unlocked: {}", username);
         }
@@ -5,8 +5,10 @@ import java.util.List;
 import java.util.Optional;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.aqryuz.auth.config.AppProperties;
 import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
 import com.aqryuz.auth.repository.UserSessionRepository;
 import com.aqryuz.auth.service.DeviceDetectionService.DeviceInfo;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,11 +22,16 @@ import lombok.extern.slf4j.Slf4j;
 public class UserSessionService {
 
     private final UserSessionRepository userSessionRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
     private final DeviceDetectionService deviceDetectionService;
+    private final ClientIpResolver clientIpResolver;
+    private final SessionStateCache sessionStateCache;
+    private final SessionRevocationService sessionRevocationService;
+    private final AppProperties appProperties;
 
     public UserSession createSession(User user, String sessionId, HttpServletRequest request) {
         String userAgent = request.getHeader("User-Agent");
-        String ipAddress = getClientIpAddress(request);
+        String ipAddress = clientIpResolver.resolve(request);
 
         DeviceInfo deviceInfo = deviceDetectionService.extractDeviceInfo(userAgent);
         String location = deviceDetectionService.getLocationFromIp(ipAddress);
@@ -36,7 +43,9 @@ public class UserSessionService {
                 .browserVersion(deviceInfo.getBrowserVersion())
                 .operatingSystem(deviceInfo.getOperatingSystem()).ipAddress(ipAddress)
                 .location(location).userAgent(userAgent).isActive(true)
-                .expiresAt(LocalDateTime.now().plusDays(1)) // 24 hours
+                // Sliding refresh keeps the session id, so the row lives as long as the session may
+                .expiresAt(LocalDateTime.now()
+                        .plusMinutes(appProperties.jwt().maxSessionDurationMinutes()))
                 .build();
 
         UserSession savedSession = userSessionRepository.save(session);
@@ -67,53 +76,21 @@ public class UserSessionService {
             userSession.setRevokedAt(LocalDateTime.now());
             userSession.setRevokedBy(revokedBy);
             userSessionRepository.save(userSession);
+            sessionStateCache.invalidate(sessionId);
+            // Otherwise the device could refresh its way back into the session
+            refreshTokenRepository.deactivateBySessionId(sessionId);
             log.info("Revoked session: {} by: {}", sessionId, revokedBy);
         }
     }
 
+    /**
+     * Revoke every session and refresh token of the user, see {@link SessionRevocationService}
+     */
     public void revokeAllUserSessions(User user, String revokedBy) {
-        List<UserSession> activeSessions = findActiveSessionsByUser(user);
-        for (UserSession session : activeSessions) {
-            session.setActive(false);
-            session.setRevokedAt(LocalDateTime.now());
-            session.setRevokedBy(revokedBy);
-        }
-        userSessionRepository.saveAll(activeSessions);
-        log.info("Revoked all sessions for user: {} by: {}", user.getUsername(), revokedBy);
-    }
-
-    public void updateSessionActivity(String sessionId) {
-        Optional<UserSession> session =
-                userSessionRepository.findBySessionIdAndIsActiveTrue(sessionId);
-        if (session.isPresent()) {
-            UserSession userSession = session.get();
-            userSession.setLastActivity(LocalDateTime.now());
-            userSessionRepository.save(userSession);
-        }
+        sessionRevocationService.revokeAll(user, revokedBy);
     }
 
     public long countActiveSessionsByUser(User user) {
         return userSessionRepository.countActiveSessionsByUser(user);
     }
-
-    public void cleanupExpiredSessions() {
-        // This method can be called by a scheduled task to clean up expired sessions
-        log.info("Cleaning up expired sessions");
-        // Implementation would query and deactivate expired sessions
-    }
-
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()
-                && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-
-        return request.getRemoteAddr();
-    }
 }
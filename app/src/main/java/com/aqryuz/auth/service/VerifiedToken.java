@@ -0,0 +1,69 @@
+package com.aqryuz.auth.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Result of a single signature verification and claims decode. Passed through validation,
+ * sliding-window refresh and session lookup so a request never parses the same JWT twice.
+ */
+public record VerifiedToken(String token, Claims claims, String username, String sessionId,
+        Long firstIssued, Long lastActivity, Date issuedAt, Date expiration) {
+
+    /**
+     * Request attribute under which {@code JwtAuthenticationFilter} exposes the verified token
+     */
+    public static final String REQUEST_ATTRIBUTE = VerifiedToken.class.getName();
+
+    static VerifiedToken of(String token, Claims claims) {
+        return new VerifiedToken(token, claims, claims.getSubject(),
+                claims.get(JwtService.CLAIM_SESSION_ID, String.class),
+                claims.get(JwtService.CLAIM_FIRST_ISSUED, Long.class),
+                claims.get(JwtService.CLAIM_LAST_ACTIVITY, Long.class), claims.getIssuedAt(),
+                claims.getExpiration());
+    }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+    /**
+     * Role names embedded for stateless authentication, or {@code null} if absent
+     */
+    public List<String> roles() {
+        return claims.get(JwtService.CLAIM_ROLES) instanceof List<?> roles
+                ? roles.stream().map(String::valueOf).toList()
+                : null;
+    }
+
+    /**
+     * Security version embedded for stateless authentication, or {@code null} if absent
+     */
+    public Integer securityVersion() {
+        return claims.get(JwtService.CLAIM_SECURITY_VERSION, Integer.class);
+    }
+
+    /**
+     * Compact key used to blacklist this token: the session id, or a 128-bit hash of the token for
+     * tokens issued without one
+     */
+    public String revocationKey() {
+        if (sessionId != null) {
+            return sessionId;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update). Databases that already have
+-- these tables are baselined at this version instead of running it.
+
+CREATE TABLE users (
+    id                    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username              VARCHAR(50)  NOT NULL UNIQUE,
+    password              VARCHAR(255) NOT NULL,
+    email                 VARCHAR(255) NOT NULL UNIQUE,
+    first_name            VARCHAR(255),
+    last_name             VARCHAR(255),
+    totp_secret           VARCHAR(255),
+    totp_enabled          BOOLEAN,
+    account_enabled       BOOLEAN,
+    account_locked        BOOLEAN,
+    failed_login_attempts INTEGER,
+    lockout_time          TIMESTAMP(6),
+    last_login            TIMESTAMP(6),
+    created_at            TIMESTAMP(6),
+    updated_at            TIMESTAMP(6)
+);
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL REFERENCES users,
+    role    VARCHAR(255) CHECK (role IN ('ADMIN', 'USER'))
+);
+
+CREATE TABLE refresh_tokens (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token              VARCHAR(500) NOT NULL UNIQUE,
+    token_hash         VARCHAR(255) NOT NULL,
+    expiry_date        TIMESTAMP(6) NOT NULL,
+    created_at         TIMESTAMP(6) NOT NULL,
+    last_used_at       TIMESTAMP(6),
+    user_id            BIGINT       NOT NULL REFERENCES users,
+    device_fingerprint VARCHAR(255) NOT NULL,
+    ip_address         VARCHAR(255) NOT NULL,
+    user_agent         VARCHAR(255) NOT NULL,
+    remember_me        BOOLEAN DEFAULT FALSE NOT NULL,
+    active             BOOLEAN DEFAULT TRUE NOT NULL
+);
+
+CREATE TABLE user_sessions (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id          BIGINT       NOT NULL REFERENCES users,
+    session_id       VARCHAR(255) NOT NULL UNIQUE,
+    jwt_token_id     VARCHAR(255) NOT NULL,
+    device_name      VARCHAR(255),
+    device_type      VARCHAR(255),
+    browser_name     VARCHAR(255),
+    browser_version  VARCHAR(255),
+    operating_system VARCHAR(255),
+    ip_address       VARCHAR(255),
+    location         VARCHAR(255),
+    user_agent       VARCHAR(255),
+    is_active        BOOLEAN,
+    created_at       TIMESTAMP(6),
+    last_activity    TIMESTAMP(6),
+    expires_at       TIMESTAMP(6),
+    revoked_at       TIMESTAMP(6),
+    revoked_by       VARCHAR(255)
+);
@@ -0,0 +1,18 @@
+-- Refresh tokens are looked up by the raw 32-byte SHA-256 digest; the plaintext token is no
+-- longer stored. Existing Base64 hashes are decoded in place, so issued tokens stay valid.
+
+ALTER TABLE refresh_tokens DROP COLUMN token;
+
+ALTER TABLE refresh_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'base64');
+
+ALTER TABLE refresh_tokens
+    ADD CONSTRAINT chk_refresh_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
+
+-- Only active tokens are ever looked up by hash, so revoked rows stay out of the index
+CREATE UNIQUE INDEX idx_refresh_tokens_token_hash_active
+    ON refresh_tokens (token_hash) WHERE active;
+
+CREATE INDEX idx_refresh_tokens_user_active ON refresh_tokens (user_id, active);
+
+CREATE INDEX idx_refresh_tokens_expiry_date ON refresh_tokens (expiry_date);
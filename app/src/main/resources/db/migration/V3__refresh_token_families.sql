@@ -0,0 +1,11 @@
+-- Each refresh token row is one family: rotation swaps the hash and bumps the generation, so
+-- replay of a superseded token is detected without a history table. Existing rows become
+-- families of their own.
+
+ALTER TABLE refresh_tokens
+    ADD COLUMN family_id  UUID    NOT NULL DEFAULT gen_random_uuid(),
+    ADD COLUMN generation INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE refresh_tokens ALTER COLUMN family_id DROP DEFAULT;
+
+CREATE UNIQUE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
@@ -0,0 +1,2 @@
+-- Lets the expiry reaper walk sessions in expiry order instead of scanning the table
+CREATE INDEX idx_user_sessions_expires_at ON user_sessions (expires_at);
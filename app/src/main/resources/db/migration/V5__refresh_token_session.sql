@@ -0,0 +1,6 @@
+-- The access-token session a refresh token renews. Refreshing keeps the session id, so the
+-- session row stays the one place where its tokens are revoked. Rows issued before this column
+-- get a session on their next refresh.
+ALTER TABLE refresh_tokens ADD COLUMN session_id VARCHAR(255);
+
+CREATE INDEX idx_refresh_tokens_session_id ON refresh_tokens (session_id);
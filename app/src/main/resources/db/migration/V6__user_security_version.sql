@@ -0,0 +1,3 @@
+-- Bumped whenever credentials, roles or account status change; stateless tokens carry it and stop
+-- validating once it moves on. Existing users start at 0, which matches tokens issued without it.
+ALTER TABLE users ADD COLUMN security_version INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,10 @@
+-- Revoked access-token sessions shared by all nodes. Nodes poll by id to replicate revocations
+-- made elsewhere, and rows are purged once the tokens they cover have expired.
+CREATE TABLE revoked_tokens (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id VARCHAR(64)  NOT NULL UNIQUE,
+    expires_at TIMESTAMP(6) NOT NULL,
+    revoked_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
@@ -0,0 +1,48 @@
+package com.aqryuz.auth.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import com.aqryuz.auth.AuthApplication;
+
+/**
+ * Starts another instance of the application next to the test context, e.g. a node configured
+ * differently or one booting against a schema of its own. It shares the test database unless
+ * given another JDBC URL.
+ */
+public final class ApplicationNode {
+
+    private ApplicationNode() {
+    }
+
+    public static ConfigurableApplicationContext start(JdbcConnectionDetails connectionDetails,
+            String jdbcUrl, String... properties) {
+        List<String> all = new ArrayList<>(List.of("spring.datasource.url=" + jdbcUrl,
+                "spring.datasource.username=" + connectionDetails.getUsername(),
+                "spring.datasource.password=" + connectionDetails.getPassword(),
+                "spring.docker.compose.enabled=false", "server.port=0"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(AuthApplication.class)
+                .initializers(context -> context.getBeanFactory().registerSingleton(
+                        "excludeTestConfigurations", new ExcludeTestConfigurations()))
+                .properties(all.toArray(String[]::new)).run();
+    }
+
+    // The test configurations would start a container of their own inside the node
+    private static class ExcludeTestConfigurations extends TypeExcludeFilter {
+
+        @Override
+        public boolean match(MetadataReader metadataReader,
+                MetadataReaderFactory metadataReaderFactory) throws IOException {
+            return metadataReader.getAnnotationMetadata()
+                    .hasAnnotation(TestConfiguration.class.getName());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.aqryuz.auth.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import com.aqryuz.auth.config.AppProperties.PasswordHashingProperties;
+import com.aqryuz.auth.exception.ErrorResponse;
+import com.aqryuz.auth.exception.GlobalExceptionHandler;
+import com.aqryuz.auth.exception.PasswordHashingCapacityException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch hashing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // One thread and one queue slot; every hash blocks until released
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(),
+                new PasswordHashingProperties(1, 1, 5000, "argon2", 0, 19456), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void shouldRejectImmediatelyOnceThreadAndQueueAreTaken() throws Exception {
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        awaitQueued();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> encoder.matches("c", "hash:c"))
+                .isInstanceOf(PasswordHashingCapacityException.class)
+                .hasMessageContaining("queue is full");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(meterRegistry.counter("auth.password.hashing.rejected").count())
+                .isEqualTo(1.0);
+
+        // Work already accepted still completes
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+    }
+
+    @Test
+    void shouldGiveUpWaitingAfterTimeout() {
+        encoder.destroy();
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(),
+                new PasswordHashingProperties(1, 1, 50, "argon2", 0, 19456), meterRegistry);
+
+        assertThatThrownBy(() -> encoder.encode("slow"))
+                .isInstanceOf(PasswordHashingCapacityException.class)
+                .hasMessageContaining("timed out");
+    }
+
+    @Test
+    void shouldMapSaturationToServiceUnavailableWithRetryAfter() {
+        ResponseEntity<ErrorResponse> response = new GlobalExceptionHandler()
+                .handlePasswordHashingCapacity(
+                        new PasswordHashingCapacityException("Password hashing queue is full"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    private void awaitQueued() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("executor.queued").tag("name", "passwordHashing").gauge()
+                .value() < 1) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private final class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.aqryuz.auth.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+class PasswordHashCalibratorTest {
+
+    @Test
+    void shouldUseMinimumParametersWithoutTarget() {
+        assertThat(PasswordHashCalibrator.bcrypt(0).encode("secret")).startsWith("$2a$10$");
+        assertThat(PasswordHashCalibrator.argon2(0, 19456).encode("secret"))
+                .startsWith("$argon2id$v=19$m=19456,t=2,p=1$");
+    }
+
+    @Test
+    void shouldRaiseWorkFactorUntilTargetIsMet() {
+        BCryptPasswordEncoder minimum = PasswordHashCalibrator.bcrypt(0);
+        long minimumMillis = millisToVerify(minimum);
+
+        // A target above what the minimum costs forces at least one step up
+        String hash = PasswordHashCalibrator.bcrypt(minimumMillis * 3 + 1).encode("secret");
+        int strength = Integer.parseInt(hash.substring(4, 6));
+        assertThat(strength).isGreaterThan(10);
+    }
+
+    @Test
+    void shouldNeverGoBelowMinimumForTinyTarget() {
+        Argon2PasswordEncoder encoder = PasswordHashCalibrator.argon2(1, 19456);
+
+        assertThat(encoder.encode("secret")).contains("t=2").contains("m=19456");
+    }
+
+    private static long millisToVerify(BCryptPasswordEncoder encoder) {
+        String hash = encoder.encode("secret");
+        long start = System.nanoTime();
+        encoder.matches("secret", hash);
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+}
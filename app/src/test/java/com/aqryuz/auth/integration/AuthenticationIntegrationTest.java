@@ -2,6 +2,7 @@ package com.aqryuz.auth.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -14,6 +15,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,7 +26,9 @@ import com.aqryuz.auth.dto.LoginResponse;
 import com.aqryuz.auth.dto.UserCreateRequest;
 import com.aqryuz.auth.entity.User;
 import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.service.JwtService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.servlet.http.Cookie;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -45,6 +49,12 @@ class AuthenticationIntegrationTest {
         @Autowired
         private PasswordEncoder passwordEncoder;
 
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private JwtService jwtService;
+
         @BeforeEach
         void setUp() {
                 userRepository.deleteAll();
@@ -201,4 +211,70 @@ class AuthenticationIntegrationTest {
                                 .content(objectMapper.writeValueAsString(createRequest)))
                                 .andExpect(status().isForbidden());
         }
+
+        @Test
+        void shouldUpgradeLegacyBcryptHashOnSuccessfulLogin() throws Exception {
+                // Stored before encoder ids were introduced: a bare bcrypt hash
+                User legacyUser = User.builder().username("legacyhashuser")
+                                .password(new BCryptPasswordEncoder().encode("legacy-pass"))
+                                .email("legacyhash@example.com").accountEnabled(true)
+                                .accountLocked(false).totpEnabled(false)
+                                .roles(Set.of(User.Role.USER)).build();
+                userRepository.save(legacyUser);
+
+                LoginRequest loginRequest = LoginRequest.builder().usernameOrEmail("legacyhashuser")
+                                .password("legacy-pass").build();
+                mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(loginRequest)))
+                                .andExpect(status().isOk());
+
+                // The hash is written with an UPDATE, so read past this test's persistence context
+                entityManager.clear();
+                String upgraded = userRepository.findByUsername("legacyhashuser").orElseThrow()
+                                .getPassword();
+                assertThat(upgraded).startsWith("{argon2}");
+                assertThat(passwordEncoder.matches("legacy-pass", upgraded)).isTrue();
+                assertThat(passwordEncoder.upgradeEncoding(upgraded)).isFalse();
+
+                // And the upgraded hash keeps working
+                mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(loginRequest)))
+                                .andExpect(status().isOk());
+        }
+
+        @Test
+        void shouldKeepSessionWhenRefreshingThroughCookie() throws Exception {
+                LoginRequest loginRequest =
+                                LoginRequest.builder().usernameOrEmail("integrationtestuser")
+                                                .password("password123").build();
+                MvcResult loginResult = mockMvc
+                                .perform(post("/api/auth/login")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content(objectMapper
+                                                                .writeValueAsString(loginRequest)))
+                                .andExpect(status().isOk()).andReturn();
+                String loginToken = objectMapper.readValue(
+                                loginResult.getResponse().getContentAsString(),
+                                LoginResponse.class).getAccessToken();
+                Cookie refreshCookie = loginResult.getResponse().getCookie("refresh_token");
+
+                MvcResult refreshResult = mockMvc
+                                .perform(post("/api/auth/refresh").cookie(refreshCookie))
+                                .andExpect(status().isOk()).andReturn();
+                String refreshedToken = objectMapper.readValue(
+                                refreshResult.getResponse().getContentAsString(),
+                                LoginResponse.class).getAccessToken();
+
+                // The refreshed token belongs to the session opened at login, so it is tracked
+                assertThat(jwtService.verify(refreshedToken).sessionId())
+                                .isEqualTo(jwtService.verify(loginToken).sessionId());
+                mockMvc.perform(get("/api/user/profile").header("Authorization",
+                                "Bearer " + refreshedToken)).andExpect(status().isOk());
+
+                // Signing out everywhere ends it together with the session
+                mockMvc.perform(post("/api/auth/logout-all").header("Authorization",
+                                "Bearer " + loginToken)).andExpect(status().isOk());
+                mockMvc.perform(get("/api/user/profile").header("Authorization",
+                                "Bearer " + refreshedToken)).andExpect(status().isForbidden());
+        }
 }
@@ -0,0 +1,133 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.RefreshToken;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.ClusterLock;
+import com.aqryuz.auth.service.ExpiredRowReaper;
+
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class ExpiredRowReaperTest {
+
+    @Autowired
+    private ExpiredRowReaper expiredRowReaper;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "reaper-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId())).toList());
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldDeactivateExpiredAndDeleteLongExpiredRefreshTokens() {
+        Long valid = saveToken(LocalDateTime.now().plusHours(1));
+        Long expired = saveToken(LocalDateTime.now().minusHours(1));
+        Long longExpired = saveToken(LocalDateTime.now().minusDays(60));
+
+        assertThat(expiredRowReaper.reap()).isTrue();
+
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user))
+                .extracting(RefreshToken::getId).containsExactly(valid);
+        assertThat(refreshTokenRepository.findById(expired)).isPresent();
+        assertThat(refreshTokenRepository.findById(longExpired)).isEmpty();
+    }
+
+    @Test
+    void shouldDeactivateExpiredAndDeleteLongExpiredSessions() {
+        Long valid = saveSession(LocalDateTime.now().plusHours(1));
+        Long expired = saveSession(LocalDateTime.now().minusHours(1));
+        Long longExpired = saveSession(LocalDateTime.now().minusDays(60));
+
+        expiredRowReaper.reap();
+
+        assertThat(userSessionRepository.findById(valid)).get()
+                .extracting(UserSession::isActive).isEqualTo(true);
+        assertThat(userSessionRepository.findById(expired)).get()
+                .extracting(UserSession::isActive).isEqualTo(false);
+        assertThat(userSessionRepository.findById(longExpired)).isEmpty();
+    }
+
+    @Test
+    void shouldSkipSweepWhileAnotherNodeHoldsTheLock() throws Exception {
+        Long expired = saveToken(LocalDateTime.now().minusHours(1));
+
+        try (Connection otherNode = dataSource.getConnection()) {
+            advisoryLock(otherNode, "SELECT pg_advisory_lock(?)");
+
+            assertThat(expiredRowReaper.reap()).isFalse();
+            assertThat(refreshTokenRepository.findByUserAndActiveTrue(user))
+                    .extracting(RefreshToken::getId).containsExactly(expired);
+
+            advisoryLock(otherNode, "SELECT pg_advisory_unlock(?)");
+        }
+
+        assertThat(expiredRowReaper.reap()).isTrue();
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).isEmpty();
+    }
+
+    private static void advisoryLock(Connection connection, String sql) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, ClusterLock.EXPIRED_ROW_REAPER);
+            statement.executeQuery().close();
+        }
+    }
+
+    private Long saveToken(LocalDateTime expiryDate) {
+        byte[] hash = new byte[32];
+        ThreadLocalRandom.current().nextBytes(hash);
+        return refreshTokenRepository.save(RefreshToken.builder().tokenHash(hash)
+                .familyId(UUID.randomUUID()).user(user).expiryDate(expiryDate)
+                .createdAt(LocalDateTime.now()).deviceFingerprint("test").ipAddress("127.0.0.1")
+                .userAgent("test").active(true).build()).getId();
+    }
+
+    private Long saveSession(LocalDateTime expiresAt) {
+        return userSessionRepository.save(UserSession.builder().user(user)
+                .sessionId(UUID.randomUUID().toString()).jwtTokenId("test").isActive(true)
+                .expiresAt(expiresAt).build()).getId();
+    }
+}
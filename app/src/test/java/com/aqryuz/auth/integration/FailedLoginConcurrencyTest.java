@@ -0,0 +1,101 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.service.UserService;
+
+/**
+ * Failed-login accounting under contention. Not transactional: every attempt must commit on its
+ * own connection for the row lock to be exercised.
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class FailedLoginConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<Long> createdUserIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllById(createdUserIds);
+    }
+
+    @Test
+    void shouldCountEveryConcurrentFailedLogin() throws Exception {
+        String username = createUser();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < ATTEMPTS_PER_THREAD; j++) {
+                    userService.incrementFailedLoginAttempts(username);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        User user = userRepository.findByUsername(username).orElseThrow();
+        assertThat(user.getFailedLoginAttempts()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD);
+        assertThat(user.isAccountLocked()).isTrue();
+        // Progressive lockout is capped at 24 hours
+        assertThat(user.getLockoutTime()).isBefore(LocalDateTime.now().plusHours(24).plusMinutes(1));
+    }
+
+    @Test
+    void shouldUnlockInsteadOfCountingOnceLockoutHasExpired() {
+        String username = createUser();
+        User user = userRepository.findByUsername(username).orElseThrow();
+        user.setAccountLocked(true);
+        user.setFailedLoginAttempts(3);
+        user.setLockoutTime(LocalDateTime.now().minusDays(1));
+        userRepository.save(user);
+
+        userService.incrementFailedLoginAttempts(username);
+
+        User unlocked = userRepository.findByUsername(username).orElseThrow();
+        assertThat(unlocked.isAccountLocked()).isFalse();
+        assertThat(unlocked.getFailedLoginAttempts()).isZero();
+        assertThat(unlocked.getLockoutTime()).isNull();
+    }
+
+    private String createUser() {
+        String username = "failed-login-" + UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+        createdUserIds.add(user.getId());
+        return username;
+    }
+}
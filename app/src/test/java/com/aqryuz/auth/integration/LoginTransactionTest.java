@@ -0,0 +1,112 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.dto.LoginRequest;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.AuthenticationService;
+
+/**
+ * Password hashing must run with no transaction open on the request thread, so a slow hash never
+ * pins a pooled connection. Not transactional, like the logins it exercises.
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class LoginTransactionTest {
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @MockitoSpyBean
+    private PasswordEncoder passwordEncoder;
+
+    private final List<Boolean> hashedInTransaction = new ArrayList<>();
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // Stored as bare bcrypt so a successful login also re-encodes it
+        user = userRepository.save(User.builder().username("tx-" + UUID.randomUUID())
+                .password(new BCryptPasswordEncoder().encode("password123"))
+                .email(UUID.randomUUID() + "@example.com").accountEnabled(true)
+                .accountLocked(false).totpEnabled(false).roles(Set.of(User.Role.USER)).build());
+
+        doAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).matches(any(), any());
+        doAnswer(invocation -> {
+            hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId())).toList());
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void shouldHashOutsideTransactionOnSuccessfulLogin() {
+        authenticationService.authenticate(login("password123"), new MockHttpServletRequest(),
+                new MockHttpServletResponse());
+
+        // Verified, then re-encoded to the current algorithm
+        assertThat(hashedInTransaction).hasSize(2).containsOnly(false);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPassword())
+                .startsWith("{argon2}");
+    }
+
+    @Test
+    void shouldHashOutsideTransactionOnFailedLogin() {
+        assertThatThrownBy(() -> authenticationService.authenticate(login("wrong-password"),
+                new MockHttpServletRequest(), new MockHttpServletResponse()))
+                .isInstanceOf(BadCredentialsException.class);
+
+        assertThat(hashedInTransaction).hasSize(1).containsOnly(false);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getFailedLoginAttempts())
+                .isOne();
+    }
+
+    private LoginRequest login(String password) {
+        return LoginRequest.builder().usernameOrEmail(user.getUsername()).password(password)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.Driver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import com.aqryuz.auth.config.ApplicationNode;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+
+/**
+ * A database created before the schema moved to Flyway must be baselined at V1, migrated from
+ * there and pass schema validation. The application is started against a schema of its own
+ * holding the tables ddl-auto made back then.
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class PreFlywaySchemaMigrationTest {
+
+    @Autowired
+    private JdbcConnectionDetails connectionDetails;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final String schema = "pre_flyway_" + UUID.randomUUID().toString().substring(0, 8);
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP SCHEMA " + schema + " CASCADE");
+    }
+
+    @Test
+    void shouldBootOnSchemaCreatedByHibernate() {
+        new JdbcTemplate(dataSource).execute("CREATE SCHEMA " + schema);
+        String url = connectionDetails.getJdbcUrl()
+                + (connectionDetails.getJdbcUrl().contains("?") ? "&" : "?") + "currentSchema="
+                + schema;
+        DataSource legacy = new SimpleDriverDataSource(new Driver(), url,
+                connectionDetails.getUsername(), connectionDetails.getPassword());
+        new ResourceDatabasePopulator(new ClassPathResource("db/pre-flyway-schema.sql"))
+                .execute(legacy);
+
+        // Baselining as configured in the main application.properties
+        try (ConfigurableApplicationContext app = ApplicationNode.start(connectionDetails, url,
+                "spring.flyway.schemas=" + schema, "spring.flyway.baseline-on-migrate=true",
+                "spring.flyway.baseline-version=1",
+                "spring.jpa.properties.hibernate.default_schema=" + schema)) {
+            assertThat(app.isRunning()).isTrue();
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(legacy);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success ORDER BY installed_rank",
+                String.class)).startsWith("1").contains("6", "7");
+        // The refresh token issued before the migration is still found by its hash
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM refresh_tokens WHERE token_hash = sha256('legacy-token')",
+                Integer.class)).isOne();
+    }
+}
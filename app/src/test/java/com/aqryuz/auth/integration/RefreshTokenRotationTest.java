@@ -0,0 +1,300 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import com.aqryuz.auth.config.ApplicationNode;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.RefreshToken;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.JwtService;
+import com.aqryuz.auth.service.RefreshTokenService;
+import com.aqryuz.auth.service.UserSessionService;
+
+/**
+ * Refresh token rotation through the conditional UPDATE. Not transactional, so concurrent
+ * rotations really race on the row lock.
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class RefreshTokenRotationTest {
+
+    private static final int THREADS = 8;
+    // app.device-management.max-sessions-per-user in the test properties
+    private static final int MAX_SESSIONS = 5;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionService userSessionService;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private JdbcConnectionDetails connectionDetails;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${app.jwt.secret}")
+    private String jwtSecret;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "rotation-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId())).toList());
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldRotateOnceAndRejectTheOldToken() {
+        String token = issueToken();
+
+        Optional<RefreshToken> rotated =
+                refreshTokenService.validateAndRefreshToken(token, new MockHttpServletRequest());
+
+        assertThat(rotated).isPresent();
+        assertThat(rotated.get().getToken()).isNotEqualTo(token);
+        assertThat(rotated.get().getLastUsedAt()).isNotNull();
+        assertThat(refreshTokenService.validateAndRefreshToken(token,
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenService.validateAndRefreshToken(rotated.get().getToken(),
+                new MockHttpServletRequest())).isPresent();
+    }
+
+    @Test
+    void shouldLetOnlyOneConcurrentReplayWin() throws Exception {
+        String token = issueToken();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<RefreshToken>>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return refreshTokenService.validateAndRefreshToken(token,
+                        new MockHttpServletRequest());
+            }));
+        }
+        start.countDown();
+        int winners = 0;
+        for (Future<Optional<RefreshToken>> future : futures) {
+            if (future.get().isPresent()) {
+                winners++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(winners).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRevokeFamilyWhenSupersededTokenIsReplayed() {
+        String first = issueToken();
+        String second = rotate(first);
+        String third = rotate(second);
+
+        assertThat(refreshTokenService.validateAndRefreshToken(first,
+                new MockHttpServletRequest())).isEmpty();
+
+        // The legitimate holder is logged out too
+        assertThat(refreshTokenService.validateAndRefreshToken(third,
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).isEmpty();
+    }
+
+    @Test
+    void shouldTolerateImmediatePredecessorWithinGracePeriod() {
+        String first = issueToken();
+        String second = rotate(first);
+
+        assertThat(refreshTokenService.validateAndRefreshToken(first,
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenService.validateAndRefreshToken(second,
+                new MockHttpServletRequest())).isPresent();
+    }
+
+    @Test
+    void shouldNotRevokeFamilyForForgedPrefix() {
+        String first = issueToken();
+        String third = rotate(rotate(first));
+        String[] parts = first.split("\\.");
+
+        // Knowing the family id is not enough to pass for one of its superseded tokens
+        assertThat(refreshTokenService.validateAndRefreshToken(
+                parts[0] + ".0.forged-secret." + parts[3], new MockHttpServletRequest()))
+                .isEmpty();
+
+        assertThat(refreshTokenService.validateAndRefreshToken(third,
+                new MockHttpServletRequest())).isPresent();
+    }
+
+    @Test
+    void shouldRejectSecretPresentedUnderAnotherFamily() {
+        String[] first = issueToken().split("\\.");
+        String[] second = issueToken().split("\\.");
+
+        assertThat(refreshTokenService.validateAndRefreshToken(
+                second[0] + "." + second[1] + "." + first[2] + "." + second[3],
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenService.validateAndRefreshToken(String.join(".", first),
+                new MockHttpServletRequest())).isPresent();
+        assertThat(refreshTokenService.validateAndRefreshToken(String.join(".", second),
+                new MockHttpServletRequest())).isPresent();
+    }
+
+    @Test
+    void shouldRotateUntaggedTokenBySecretAlone() {
+        String token = issueToken();
+        String untagged = token.substring(0, token.lastIndexOf('.'));
+
+        Optional<RefreshToken> rotated =
+                refreshTokenService.validateAndRefreshToken(untagged, new MockHttpServletRequest());
+
+        assertThat(rotated).isPresent();
+        assertThat(rotated.get().getToken().split("\\.")).hasSize(4);
+    }
+
+    @Test
+    void shouldKeepTheSessionAcrossRotations() {
+        String token = issueToken();
+        String sessionId = refreshTokenRepository.findByUserAndActiveTrue(user).get(0)
+                .getSessionId();
+
+        RefreshToken rotated = refreshTokenService
+                .validateAndRefreshToken(token, new MockHttpServletRequest()).orElseThrow();
+
+        assertThat(rotated.getSessionId()).isEqualTo(sessionId);
+    }
+
+    @Test
+    void shouldRejectRefreshOnceItsSessionIsRevoked() {
+        String token = issueToken();
+        String sessionId = refreshTokenRepository.findByUserAndActiveTrue(user).get(0)
+                .getSessionId();
+
+        userSessionService.revokeSession(sessionId, "test");
+
+        assertThat(refreshTokenService.validateAndRefreshToken(token,
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).isEmpty();
+    }
+
+    @Test
+    void shouldOpenSessionForTokenIssuedWithoutOne() {
+        String token = refreshTokenService
+                .createRefreshToken(user, null, false, new MockHttpServletRequest()).getToken();
+
+        RefreshToken rotated = refreshTokenService
+                .validateAndRefreshToken(token, new MockHttpServletRequest()).orElseThrow();
+
+        assertThat(rotated.getSessionId()).isNotNull();
+        assertThat(userSessionService.findActiveSession(rotated.getSessionId())).isPresent();
+        assertThat(refreshTokenService.validateAndRefreshToken(rotated.getToken(),
+                new MockHttpServletRequest())).get().extracting(RefreshToken::getSessionId)
+                .isEqualTo(rotated.getSessionId());
+    }
+
+    @Test
+    void shouldKeepOnlyTheNewestTokensOnceSessionCapIsReached() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < MAX_SESSIONS + 2; i++) {
+            tokens.add(issueToken());
+        }
+
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).hasSize(MAX_SESSIONS);
+        assertThat(refreshTokenService.validateAndRefreshToken(tokens.get(0),
+                new MockHttpServletRequest())).isEmpty();
+        assertThat(refreshTokenService.validateAndRefreshToken(tokens.get(tokens.size() - 1),
+                new MockHttpServletRequest())).isPresent();
+    }
+
+    @Test
+    void shouldRejectExpiredToken() {
+        String token = issueToken();
+        RefreshToken stored = refreshTokenRepository.findByUserAndActiveTrue(user).get(0);
+        stored.setExpiryDate(LocalDateTime.now().minusMinutes(1));
+        refreshTokenRepository.save(stored);
+
+        assertThat(refreshTokenService.validateAndRefreshToken(token,
+                new MockHttpServletRequest())).isEmpty();
+    }
+
+    @Test
+    void shouldRefreshOnNodeWithRotatedSigningKey() {
+        String token = issueToken();
+
+        // Started with a new signing secret, keeping the old one for verification only
+        try (ConfigurableApplicationContext rotatedNode = ApplicationNode.start(connectionDetails,
+                connectionDetails.getJdbcUrl(),
+                "app.jwt.secret=rotatedSecretKeyForJWTSigningMustBeLongEnoughForHS256",
+                "app.jwt.previous-secrets=" + jwtSecret)) {
+            RefreshToken rotated = rotatedNode.getBean(RefreshTokenService.class)
+                    .validateAndRefreshToken(token, new MockHttpServletRequest()).orElseThrow();
+            JwtService rotatedJwtService = rotatedNode.getBean(JwtService.class);
+
+            String accessToken = rotatedJwtService.generateToken(user, rotated.getSessionId());
+            assertThat(rotatedJwtService.verify(accessToken).sessionId())
+                    .isEqualTo(rotated.getSessionId());
+            // Access tokens signed before the rotation stay valid as well
+            assertThat(rotatedJwtService
+                    .verify(jwtService.generateToken(user, rotated.getSessionId())).sessionId())
+                    .isEqualTo(rotated.getSessionId());
+        }
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).hasSize(1);
+    }
+
+    private String rotate(String token) {
+        return refreshTokenService.validateAndRefreshToken(token, new MockHttpServletRequest())
+                .orElseThrow().getToken();
+    }
+
+    private String issueToken() {
+        String sessionId = UUID.randomUUID().toString();
+        userSessionService.createSession(user, sessionId, new MockHttpServletRequest());
+        return refreshTokenService
+                .createRefreshToken(user, sessionId, false, new MockHttpServletRequest())
+                .getToken();
+    }
+}
@@ -0,0 +1,165 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.repository.RevokedTokenRepository;
+import com.aqryuz.auth.service.ClusterLock;
+import com.aqryuz.auth.service.TokenBlacklistService;
+import com.aqryuz.auth.service.TokenRevocationStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two blacklist instances sharing the database store, standing in for two nodes behind the load
+ * balancer
+ */
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class RevocationSyncTest {
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private AppProperties appProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TokenBlacklistService nodeA;
+    private TokenBlacklistService nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = new TokenBlacklistService(new SimpleMeterRegistry(), tokenRevocationStore,
+                appProperties);
+        nodeB = new TokenBlacklistService(new SimpleMeterRegistry(), tokenRevocationStore,
+                appProperties);
+        nodeB.syncFromStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    void shouldSeeRevocationMadeOnAnotherNode() {
+        String sessionId = UUID.randomUUID().toString();
+        nodeA.blacklist(sessionId, Instant.now().plusSeconds(600));
+
+        nodeB.syncFromStore();
+
+        assertThat(nodeB.isBlacklisted(sessionId)).isTrue();
+    }
+
+    @Test
+    void shouldSyncMoreRevocationsThanOneBatch() {
+        Map<String, Instant> revocations = new HashMap<>();
+        for (int i = 0; i < 1200; i++) {
+            revocations.put(UUID.randomUUID().toString(), Instant.now().plusSeconds(600));
+        }
+        nodeA.blacklistAll(revocations);
+
+        nodeB.syncFromStore();
+
+        assertThat(revocations.keySet()).allMatch(nodeB::isBlacklisted);
+    }
+
+    @Test
+    void shouldPickUpRowCommittedAfterAHigherId() {
+        // A transaction draws its id, then another one commits a higher id first
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Long reservedId = jdbcTemplate.queryForObject(
+                "SELECT nextval(pg_get_serial_sequence('revoked_tokens', 'id'))", Long.class);
+        nodeA.blacklist(UUID.randomUUID().toString(), Instant.now().plusSeconds(600));
+        nodeB.syncFromStore();
+
+        String earlier = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO revoked_tokens (id, session_id, expires_at, revoked_at)"
+                + " VALUES (?, ?, ?, ?)", reservedId, earlier, LocalDateTime.now().plusMinutes(10),
+                LocalDateTime.now());
+        nodeB.syncFromStore();
+
+        assertThat(nodeB.isBlacklisted(earlier)).isTrue();
+    }
+
+    @Test
+    void shouldPickUpBulkRevocationCommittedAfterManyHigherIds() throws Exception {
+        List<String> bulk = IntStream.range(0, 200).mapToObj(i -> UUID.randomUUID().toString())
+                .toList();
+
+        try (Connection slowWriter = dataSource.getConnection()) {
+            // A logout-all draws its ids, and a later revocation commits above them first
+            slowWriter.setAutoCommit(false);
+            try (PreparedStatement statement = slowWriter.prepareStatement(
+                    "INSERT INTO revoked_tokens (session_id, expires_at, revoked_at)"
+                            + " VALUES (?, ?, LOCALTIMESTAMP)")) {
+                for (String sessionId : bulk) {
+                    statement.setString(1, sessionId);
+                    statement.setObject(2, LocalDateTime.now().plusMinutes(10));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            nodeA.blacklist(UUID.randomUUID().toString(), Instant.now().plusSeconds(600));
+            nodeB.syncFromStore();
+
+            slowWriter.commit();
+        }
+        nodeB.syncFromStore();
+
+        assertThat(bulk).allMatch(nodeB::isBlacklisted);
+    }
+
+    @Test
+    void shouldSkipPurgeWhileAnotherNodeHoldsTheLock() throws Exception {
+        String expired = UUID.randomUUID().toString();
+
+        try (Connection otherNode = dataSource.getConnection()) {
+            lock(otherNode, "SELECT pg_advisory_lock(?)");
+            revokedTokenRepository.insertIfAbsent(expired, LocalDateTime.now().minusMinutes(1));
+
+            assertThat(tokenRevocationStore.purgeExpired(Instant.now())).isZero();
+            assertThat(exists(expired)).isTrue();
+
+            lock(otherNode, "SELECT pg_advisory_unlock(?)");
+        }
+
+        assertThat(tokenRevocationStore.purgeExpired(Instant.now())).isPositive();
+        assertThat(exists(expired)).isFalse();
+    }
+
+    private boolean exists(String sessionId) {
+        return revokedTokenRepository.findAll().stream()
+                .anyMatch(r -> r.getSessionId().equals(sessionId));
+    }
+
+    private static void lock(Connection connection, String sql) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, ClusterLock.REVOCATION_PURGE);
+            statement.executeQuery().close();
+        }
+    }
+}
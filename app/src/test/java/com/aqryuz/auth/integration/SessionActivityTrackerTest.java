@@ -0,0 +1,90 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.SessionActivityTracker;
+
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class SessionActivityTrackerTest {
+
+    @Autowired
+    private SessionActivityTracker sessionActivityTracker;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "activity-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldWriteCoalescedActivityOnFlush() {
+        UserSession first = saveSession(true);
+        UserSession second = saveSession(true);
+
+        for (int i = 0; i < 10; i++) {
+            sessionActivityTracker.touch(first.getSessionId());
+        }
+        sessionActivityTracker.touch(second.getSessionId());
+
+        // Nothing is written until the flush
+        assertThat(lastActivity(first)).isEqualTo(first.getLastActivity());
+
+        sessionActivityTracker.flush();
+
+        assertThat(lastActivity(first)).isAfter(first.getLastActivity());
+        assertThat(lastActivity(second)).isAfter(second.getLastActivity());
+    }
+
+    @Test
+    void shouldNotTouchInactiveSessions() {
+        UserSession revoked = saveSession(false);
+
+        sessionActivityTracker.touch(revoked.getSessionId());
+        sessionActivityTracker.flush();
+
+        assertThat(lastActivity(revoked)).isEqualTo(revoked.getLastActivity());
+    }
+
+    private UserSession saveSession(boolean active) {
+        UserSession session = userSessionRepository.save(UserSession.builder().user(user)
+                .sessionId(UUID.randomUUID().toString()).jwtTokenId("test").isActive(active)
+                .expiresAt(LocalDateTime.now().plusHours(1)).build());
+        // Reload so the timestamp has the database's precision
+        return userSessionRepository.findById(session.getId()).orElseThrow();
+    }
+
+    private LocalDateTime lastActivity(UserSession session) {
+        return userSessionRepository.findById(session.getId()).orElseThrow().getLastActivity();
+    }
+}
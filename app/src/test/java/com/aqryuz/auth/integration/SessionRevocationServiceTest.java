@@ -0,0 +1,142 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.RefreshToken;
+import com.aqryuz.auth.entity.RevokedToken;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.RevokedTokenRepository;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.SessionRevocationService;
+import com.aqryuz.auth.service.TokenBlacklistService;
+
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class SessionRevocationServiceTest {
+
+    private static final int SESSIONS = 20;
+
+    @Autowired
+    private SessionRevocationService sessionRevocationService;
+
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "revoke-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId())).toList());
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldRevokeEverySessionAndRefreshTokenAndBlacklistTheSessions() {
+        List<String> sessionIds = IntStream.range(0, SESSIONS).mapToObj(i -> saveSession())
+                .toList();
+        saveRefreshToken();
+        saveRefreshToken();
+
+        int revoked = sessionRevocationService.revokeAll(user, "test");
+
+        assertThat(revoked).isEqualTo(SESSIONS);
+        assertThat(userSessionRepository.findByUserIdAndIsActiveTrueOrderByLastActivityDesc(
+                user.getId())).isEmpty();
+        assertThat(userSessionRepository.findBySessionId(sessionIds.get(0))).get()
+                .extracting(UserSession::getRevokedBy).isEqualTo("test");
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).isEmpty();
+        assertThat(sessionIds).allMatch(tokenBlacklistService::isBlacklisted);
+        // Persisted for the other nodes in one write
+        assertThat(revokedTokenRepository.findAll()).extracting(RevokedToken::getSessionId)
+                .containsAll(sessionIds);
+    }
+
+    @Test
+    void shouldKeepRevocationWhenPersistingTheBlacklistFails() {
+        String sessionId = saveSession();
+        saveRefreshToken();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE FUNCTION reject_revocation() RETURNS trigger AS $$
+                BEGIN RAISE EXCEPTION 'store unavailable'; END $$ LANGUAGE plpgsql""");
+        jdbcTemplate.execute("""
+                CREATE TRIGGER reject_revocation BEFORE INSERT ON revoked_tokens
+                FOR EACH ROW EXECUTE FUNCTION reject_revocation()""");
+
+        try {
+            assertThat(sessionRevocationService.revokeAll(user, "test")).isOne();
+        } finally {
+            jdbcTemplate.execute("DROP TRIGGER reject_revocation ON revoked_tokens");
+            jdbcTemplate.execute("DROP FUNCTION reject_revocation()");
+        }
+
+        assertThat(userSessionRepository.findByUserIdAndIsActiveTrueOrderByLastActivityDesc(
+                user.getId())).isEmpty();
+        assertThat(refreshTokenRepository.findByUserAndActiveTrue(user)).isEmpty();
+        assertThat(tokenBlacklistService.isBlacklisted(sessionId)).isTrue();
+    }
+
+    @Test
+    void shouldDoNothingForUserWithoutSessions() {
+        assertThat(sessionRevocationService.revokeAll(user, "test")).isZero();
+    }
+
+    private String saveSession() {
+        return userSessionRepository.save(UserSession.builder().user(user)
+                .sessionId(UUID.randomUUID().toString()).jwtTokenId("test").isActive(true)
+                .expiresAt(LocalDateTime.now().plusHours(1)).build()).getSessionId();
+    }
+
+    private void saveRefreshToken() {
+        byte[] hash = new byte[32];
+        ThreadLocalRandom.current().nextBytes(hash);
+        refreshTokenRepository.save(RefreshToken.builder().tokenHash(hash)
+                .familyId(UUID.randomUUID()).user(user)
+                .expiryDate(LocalDateTime.now().plusHours(1)).createdAt(LocalDateTime.now())
+                .deviceFingerprint("test").ipAddress("127.0.0.1").userAgent("test").active(true)
+                .build());
+    }
+}
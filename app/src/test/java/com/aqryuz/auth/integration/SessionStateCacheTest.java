@@ -0,0 +1,95 @@
+package com.aqryuz.auth.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.entity.UserSession;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.SessionStateCache;
+import com.aqryuz.auth.service.UserSessionService;
+
+@SpringBootTest
+@Import(TestcontainersConfiguration.class)
+class SessionStateCacheTest {
+
+    @Autowired
+    private SessionStateCache sessionStateCache;
+
+    @Autowired
+    private UserSessionService userSessionService;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "state-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username).password("unused")
+                .email(username + "@example.com").accountEnabled(true).accountLocked(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        userRepository.delete(user);
+    }
+
+    @Test
+    void shouldRejectSessionAsSoonAsItIsRevoked() {
+        String sessionId = saveSession(LocalDateTime.now().plusHours(1));
+        assertThat(sessionStateCache.isValid(sessionId)).isTrue();
+
+        userSessionService.revokeSession(sessionId, "test");
+
+        assertThat(sessionStateCache.isValid(sessionId)).isFalse();
+    }
+
+    @Test
+    void shouldRejectAllSessionsRevokedTogether() {
+        String first = saveSession(LocalDateTime.now().plusHours(1));
+        String second = saveSession(LocalDateTime.now().plusHours(1));
+        assertThat(sessionStateCache.isValid(first)).isTrue();
+        assertThat(sessionStateCache.isValid(second)).isTrue();
+
+        userSessionService.revokeAllUserSessions(user, "test");
+
+        assertThat(sessionStateCache.isValid(first)).isFalse();
+        assertThat(sessionStateCache.isValid(second)).isFalse();
+    }
+
+    @Test
+    void shouldRejectExpiredSession() {
+        String sessionId = saveSession(LocalDateTime.now().minusMinutes(1));
+
+        assertThat(sessionStateCache.isValid(sessionId)).isFalse();
+    }
+
+    @Test
+    void shouldRejectUntrackedSessions() {
+        assertThat(sessionStateCache.isValid(UUID.randomUUID().toString())).isFalse();
+        assertThat(sessionStateCache.isValid(null)).isFalse();
+    }
+
+    private String saveSession(LocalDateTime expiresAt) {
+        return userSessionRepository.save(UserSession.builder().user(user)
+                .sessionId(UUID.randomUUID().toString()).jwtTokenId("test").isActive(true)
+                .expiresAt(expiresAt).build()).getSessionId();
+    }
+}
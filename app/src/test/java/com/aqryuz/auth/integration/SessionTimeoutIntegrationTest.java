@@ -149,11 +149,29 @@ class SessionTimeoutIntegrationTest {
                                 .readTree(loginResult.getResponse().getContentAsString());
                 String token = loginResponse.get("accessToken").asText();
 
-                // Test session refresh endpoint
+                // An explicit refresh re-issues even though the token is not yet due
+                MvcResult refreshResult = mockMvc
+                                .perform(post("/api/auth/session/refresh")
+                                                .header("Authorization", "Bearer " + token))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.message")
+                                                .value("Session refreshed successfully"))
+                                .andExpect(jsonPath("$.tokenRefreshed").value(true))
+                                .andExpect(jsonPath("$.newToken").isString()).andReturn();
+                String newToken = objectMapper
+                                .readTree(refreshResult.getResponse().getContentAsString())
+                                .get("newToken").asText();
+                assertThat(newToken).isNotEqualTo(token);
+
+                // Presenting the same token again is coalesced onto the same replacement
                 mockMvc.perform(post("/api/auth/session/refresh").header("Authorization",
                                 "Bearer " + token)).andExpect(status().isOk())
-                                .andExpect(jsonPath("$.message")
-                                                .value("Session refreshed successfully"));
+                                .andExpect(jsonPath("$.newToken").value(newToken));
+
+                // The replacement itself works
+                mockMvc.perform(get("/api/auth/session/info").header("Authorization",
+                                "Bearer " + newToken)).andExpect(status().isOk())
+                                .andExpect(jsonPath("$.username").value("refreshtestuser"));
         }
 
         @Test
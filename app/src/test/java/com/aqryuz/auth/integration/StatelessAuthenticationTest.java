@@ -0,0 +1,131 @@
+package com.aqryuz.auth.integration;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import com.aqryuz.auth.config.TestcontainersConfiguration;
+import com.aqryuz.auth.dto.LoginRequest;
+import com.aqryuz.auth.dto.LoginResponse;
+import com.aqryuz.auth.dto.UserUpdateRequest;
+import com.aqryuz.auth.entity.User;
+import com.aqryuz.auth.repository.RefreshTokenRepository;
+import com.aqryuz.auth.repository.UserRepository;
+import com.aqryuz.auth.repository.UserSessionRepository;
+import com.aqryuz.auth.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stateless authentication, where the principal comes from the token's claims and only the
+ * security version is checked against the database. Not transactional, so admin changes commit
+ * before the next request is filtered.
+ */
+@SpringBootTest(properties = "app.jwt.stateless-authentication=true")
+@AutoConfigureMockMvc
+@Import(TestcontainersConfiguration.class)
+class StatelessAuthenticationTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "stateless-" + UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder().username(username)
+                .password(passwordEncoder.encode(PASSWORD)).email(username + "@example.com")
+                .accountEnabled(true).accountLocked(false).totpEnabled(false)
+                .roles(Set.of(User.Role.USER)).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userSessionRepository.deleteAll(userSessionRepository.findAll().stream()
+                .filter(session -> session.getUser().getId().equals(user.getId())).toList());
+        refreshTokenRepository.deleteAll(refreshTokenRepository.findAll().stream()
+                .filter(token -> token.getUser().getId().equals(user.getId())).toList());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void shouldRejectTokenOnceAccountIsLocked() throws Exception {
+        String token = login();
+        profile(token).andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(user.getUsername()));
+
+        userService.updateUser(user.getId(),
+                UserUpdateRequest.builder().accountLocked(true).build());
+
+        profile(token).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void shouldRejectTokenOnceRolesChange() throws Exception {
+        String token = login();
+        profile(token).andExpect(status().isOk());
+
+        userService.updateUser(user.getId(), UserUpdateRequest.builder()
+                .roles(new HashSet<>(Set.of(User.Role.USER, User.Role.ADMIN))).build());
+
+        profile(token).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void shouldKeepTokenWhenUpdateChangesNothingSecurityRelevant() throws Exception {
+        String token = login();
+
+        userService.updateUser(user.getId(), UserUpdateRequest.builder().accountLocked(false)
+                .accountEnabled(true).firstName("Renamed").build());
+
+        profile(token).andExpect(status().isOk());
+    }
+
+    private String login() throws Exception {
+        LoginRequest loginRequest = LoginRequest.builder().usernameOrEmail(user.getUsername())
+                .password(PASSWORD).build();
+        String body = mockMvc
+                .perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, LoginResponse.class).getAccessToken();
+    }
+
+    private ResultActions profile(String token) throws Exception {
+        return mockMvc.perform(get("/api/user/profile").header("Authorization", "Bearer " + token));
+    }
+}
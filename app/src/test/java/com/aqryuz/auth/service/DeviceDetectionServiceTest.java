@@ -0,0 +1,130 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.CacheProperties;
+import com.aqryuz.auth.config.AppProperties.GeoIpProperties;
+import com.aqryuz.auth.service.DeviceDetectionService.DeviceInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeviceDetectionServiceTest {
+
+    private static final String CHROME_WINDOWS =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.0.0 Safari/537.36";
+    private static final String EDGE_WINDOWS = CHROME_WINDOWS + " Edg/120.0.2210.91";
+    private static final String FIREFOX_LINUX =
+            "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0";
+    private static final String SAFARI_MAC =
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 "
+                    + "(KHTML, like Gecko) Version/17.1 Safari/605.1.15";
+    private static final String SAFARI_IPHONE =
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 "
+                    + "(KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1";
+    private static final String SAFARI_IPAD =
+            "Mozilla/5.0 (iPad; CPU OS 17_1 like Mac OS X) AppleWebKit/605.1.15 "
+                    + "(KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1";
+    private static final String CHROME_ANDROID_PHONE =
+            "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.6099.144 Mobile Safari/537.36";
+    private static final String CHROME_ANDROID_TABLET =
+            "Mozilla/5.0 (Linux; Android 13; SM-X700) AppleWebKit/537.36 (KHTML, like Gecko) "
+                    + "Chrome/120.0.6099.144 Safari/537.36";
+    private static final String IE_11 =
+            "Mozilla/5.0 (Windows NT 6.1; Trident/7.0; rv:11.0) like Gecko";
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeviceDetectionService deviceDetectionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.cache())
+                .thenReturn(new CacheProperties(10000, 300, 30, 100000, 30, 100));
+        when(appProperties.geoip()).thenReturn(new GeoIpProperties("", 100));
+        deviceDetectionService = new DeviceDetectionService(
+                new GeoIpLocator(appProperties, meterRegistry), appProperties, meterRegistry);
+    }
+
+    @Test
+    void shouldDetectDesktopBrowsers() {
+        assertDevice(CHROME_WINDOWS, "Chrome", "120.0.0.0", "Windows 10", "Desktop",
+                "Windows 10 Computer");
+        assertDevice(EDGE_WINDOWS, "Edge", "120.0.2210.91", "Windows 10", "Desktop",
+                "Windows 10 Computer");
+        assertDevice(FIREFOX_LINUX, "Firefox", "121.0", "Linux", "Desktop", "Linux Computer");
+        assertDevice(SAFARI_MAC, "Safari", "17.1", "macOS", "Desktop", "macOS Computer");
+        assertDevice(IE_11, "Internet Explorer", "11.0", "Windows 7", "Desktop",
+                "Windows 7 Computer");
+    }
+
+    @Test
+    void shouldDetectPhonesAndTablets() {
+        assertDevice(SAFARI_IPHONE, "Safari", "17.1", "iOS", "Mobile", "iPhone");
+        assertDevice(SAFARI_IPAD, "Safari", "17.1", "iOS", "Tablet", "iPad");
+        assertDevice(CHROME_ANDROID_PHONE, "Chrome", "120.0.6099.144", "Android", "Mobile",
+                "Android Phone");
+        assertDevice(CHROME_ANDROID_TABLET, "Chrome", "120.0.6099.144", "Android", "Tablet",
+                "Android Tablet");
+    }
+
+    @Test
+    void shouldFallBackForMissingOrUnrecognisedHeaders() {
+        assertThat(deviceDetectionService.extractDeviceInfo(null).getDeviceName())
+                .isEqualTo("Unknown Device");
+        assertThat(deviceDetectionService.extractDeviceInfo("  ").getBrowserName())
+                .isEqualTo("Unknown Browser");
+
+        DeviceInfo curl = deviceDetectionService.extractDeviceInfo("curl/8.4.0");
+        assertThat(curl.getBrowserName()).isEqualTo("Unknown Browser");
+        assertThat(curl.getBrowserVersion()).isEqualTo("Unknown");
+        assertThat(curl.getOperatingSystem()).isEqualTo("Unknown OS");
+    }
+
+    @Test
+    void shouldParseRepeatedUserAgentOnlyOnce() {
+        DeviceInfo first = deviceDetectionService.extractDeviceInfo(CHROME_WINDOWS);
+        DeviceInfo second = deviceDetectionService.extractDeviceInfo(CHROME_WINDOWS);
+
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "userAgents")
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldTreatOnlyPrivateRangesAsLocalNetwork() {
+        assertThat(deviceDetectionService.getLocationFromIp("10.1.2.3")).isEqualTo("Local Network");
+        assertThat(deviceDetectionService.getLocationFromIp("172.16.0.1"))
+                .isEqualTo("Local Network");
+        assertThat(deviceDetectionService.getLocationFromIp("172.31.255.255"))
+                .isEqualTo("Local Network");
+        assertThat(deviceDetectionService.getLocationFromIp("192.168.1.1"))
+                .isEqualTo("Local Network");
+        assertThat(deviceDetectionService.getLocationFromIp("::1")).isEqualTo("Local Network");
+        assertThat(deviceDetectionService.getLocationFromIp("::ffff:127.0.0.1"))
+                .isEqualTo("Local Network");
+
+        // The rest of 172.0.0.0/8 is public and goes to the GeoIP lookup
+        assertThat(deviceDetectionService.getLocationFromIp("172.217.16.142"))
+                .isEqualTo("Unknown Location");
+        assertThat(deviceDetectionService.getLocationFromIp("172.15.255.255"))
+                .isEqualTo("Unknown Location");
+        assertThat(deviceDetectionService.getLocationFromIp("172.32.0.1"))
+                .isEqualTo("Unknown Location");
+    }
+
+    private void assertDevice(String userAgent, String browserName, String browserVersion,
+            String operatingSystem, String deviceType, String deviceName) {
+        DeviceInfo info = deviceDetectionService.extractDeviceInfo(userAgent);
+        assertThat(info.getBrowserName()).isEqualTo(browserName);
+        assertThat(info.getBrowserVersion()).isEqualTo(browserVersion);
+        assertThat(info.getOperatingSystem()).isEqualTo(operatingSystem);
+        assertThat(info.getDeviceType()).isEqualTo(deviceType);
+        assertThat(info.getDeviceName()).isEqualTo(deviceName);
+    }
+}
@@ -0,0 +1,100 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.GeoIpProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GeoIpLocatorTest {
+
+    private static final String DATABASE = """
+            ip_start,ip_end,country,city
+            # comment
+            1.0.0.0,1.0.0.255,AU,Brisbane
+            "8.8.8.0","8.8.8.255","US","Mountain View"
+            8.8.8.128,8.8.9.10,XX,Overlapping
+            203.0.113.0/24,NZ,-
+            3405804032,3405804287,AU,Melbourne
+            255.255.255.0,255.255.255.255,ZZ,Top
+            2001:db8::,2001:db8::ffff,DE,Berlin
+            2a00:1450::/32,IE,Dublin
+            not-an-address,1.2.3.4,XX,Broken
+            """;
+
+    @TempDir
+    private Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GeoIpLocator geoIpLocator;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path database = Files.writeString(tempDir.resolve("geoip.csv"), DATABASE);
+        meterRegistry = new SimpleMeterRegistry();
+        geoIpLocator = create(database.toString());
+    }
+
+    @Test
+    void shouldResolveIpv4AddressesWithinRanges() {
+        assertThat(geoIpLocator.lookup("1.0.0.0")).contains("AU, Brisbane");
+        assertThat(geoIpLocator.lookup("1.0.0.255")).contains("AU, Brisbane");
+        assertThat(geoIpLocator.lookup("8.8.8.8")).contains("US, Mountain View");
+        assertThat(geoIpLocator.lookup("203.0.113.77")).contains("NZ");
+        // 203.0.114.0 - 203.0.114.255 given as integers
+        assertThat(geoIpLocator.lookup("203.0.114.9")).contains("AU, Melbourne");
+        // Above 2^31, where signed comparison would go wrong
+        assertThat(geoIpLocator.lookup("255.255.255.255")).contains("ZZ, Top");
+    }
+
+    @Test
+    void shouldResolveIpv6AndMappedIpv4Addresses() {
+        assertThat(geoIpLocator.lookup("2001:db8::1")).contains("DE, Berlin");
+        assertThat(geoIpLocator.lookup("2a00:1450:4001::200e")).contains("IE, Dublin");
+        assertThat(geoIpLocator.lookup("::ffff:8.8.4.4")).isEmpty();
+        assertThat(geoIpLocator.lookup("::ffff:8.8.8.8")).contains("US, Mountain View");
+    }
+
+    @Test
+    void shouldMissOutsideRangesAndForMalformedInput() {
+        assertThat(geoIpLocator.lookup("1.0.1.0")).isEmpty();
+        assertThat(geoIpLocator.lookup("0.255.255.255")).isEmpty();
+        // Only covered by the skipped overlapping range
+        assertThat(geoIpLocator.lookup("8.8.9.1")).isEmpty();
+        assertThat(geoIpLocator.lookup("2001:db8::1:0")).isEmpty();
+        assertThat(geoIpLocator.lookup("example.com")).isEmpty();
+        // Colons alone do not make a literal, and nothing is ever resolved
+        assertThat(geoIpLocator.lookup("zz:zz")).isEmpty();
+        assertThat(geoIpLocator.lookup("localhost:8080")).isEmpty();
+        assertThat(geoIpLocator.lookup("1.2.3.256")).isEmpty();
+        assertThat(geoIpLocator.lookup(null)).isEmpty();
+    }
+
+    @Test
+    void shouldCacheRepeatedLookups() {
+        geoIpLocator.lookup("8.8.8.8");
+        geoIpLocator.lookup("8.8.8.8");
+
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "geoIpLocations")
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldResolveNothingWithoutDatabase() {
+        assertThat(create("").lookup("8.8.8.8")).isEmpty();
+        assertThat(create(tempDir.resolve("missing.csv").toString()).lookup("8.8.8.8")).isEmpty();
+    }
+
+    private GeoIpLocator create(String databasePath) {
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.geoip()).thenReturn(new GeoIpProperties(databasePath, 100));
+        return new GeoIpLocator(appProperties, meterRegistry);
+    }
+}
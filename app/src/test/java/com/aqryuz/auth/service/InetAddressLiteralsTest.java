@@ -0,0 +1,26 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.net.InetAddress;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class InetAddressLiteralsTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0.0.0.0", "192.0.2.1", "255.255.255.255", "::", "::1", "1::",
+            "2001:db8::1", "2001:DB8:0:0:8:800:200C:417A", "1:2:3:4:5:6:7::", "::ffff:192.0.2.1",
+            "::ffff:c000:201", "64:ff9b::192.0.2.33", "fe80::1%eth0"})
+    void shouldMatchJdkParsingOfValidLiterals(String literal) throws Exception {
+        assertThat(InetAddressLiterals.parse(literal))
+                .isEqualTo(InetAddress.getByName(literal).getAddress());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "example.com", "999.1.1.1", "1.2.3", "1.2.3.4.", "1..2.3",
+            "zz:zz", ":", ":::", ":1::", "1:", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7",
+            "12345::", "::ffff:1.2.3.256", "1:2:3:4:5:6:7:1.2.3.4", "١٢::"})
+    void shouldRejectAnythingElseWithoutResolving(String literal) {
+        assertThat(InetAddressLiterals.parse(literal)).isNull();
+    }
+}
@@ -0,0 +1,120 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.SecretKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.JwtProperties;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+
+class JwtKeyProviderTest {
+
+    private static final String SECRET =
+            "YourSecretKeyForJWTSigningMustBeLongEnoughForHS256Algorithm";
+    private static final String PREVIOUS_SECRET =
+            "PreviousSecretKeyForJWTSigningMustBeLongEnoughForHS256Algorithm";
+
+    @TempDir
+    private Path tempDir;
+
+    private JwtKeyProvider jwtKeyProvider;
+
+    @AfterEach
+    void tearDown() {
+        jwtKeyProvider.shutdown();
+    }
+
+    @Test
+    void shouldKeepVerifyingTokensOfPreviousSecret() {
+        jwtKeyProvider = keyProvider(PREVIOUS_SECRET, "HS256", 60_000, List.of(), List.of());
+        String before = jwtKeyProvider.sign(Jwts.builder().subject("before")).compact();
+        jwtKeyProvider.shutdown();
+
+        jwtKeyProvider = keyProvider(SECRET, "HS256", 60_000, List.of(PREVIOUS_SECRET), List.of());
+        String after = jwtKeyProvider.sign(Jwts.builder().subject("after")).compact();
+
+        assertThat(subject(before)).isEqualTo("before");
+        assertThat(subject(after)).isEqualTo("after");
+        assertThat(Jwts.parser().verifyWith(hmacKey(SECRET)).build().parseSignedClaims(after)
+                .getPayload().getSubject()).isEqualTo("after");
+    }
+
+    @Test
+    void shouldKeepVerifyingAndPublishingPreviousPublicKey() throws IOException {
+        jwtKeyProvider = keyProvider(SECRET, "ES256", 60_000, List.of(), List.of());
+        String before = jwtKeyProvider.sign(Jwts.builder().subject("before")).compact();
+        Path previousKey = writePem(jwtKeyProvider);
+        jwtKeyProvider.shutdown();
+
+        jwtKeyProvider = keyProvider(SECRET, "ES256", 60_000, List.of(),
+                List.of(previousKey.toString()));
+
+        assertThat(subject(before)).isEqualTo("before");
+        assertThat((List<?>) jwtKeyProvider.getJwkSet().get("keys")).hasSize(2);
+    }
+
+    @Test
+    void shouldRejectTokensOfRetiredKeys() throws InterruptedException {
+        jwtKeyProvider = keyProvider(PREVIOUS_SECRET, "HS256", 1, List.of(), List.of());
+        String before = jwtKeyProvider.sign(Jwts.builder().subject("before")).compact();
+        jwtKeyProvider.shutdown();
+
+        jwtKeyProvider = keyProvider(SECRET, "HS256", 1, List.of(PREVIOUS_SECRET), List.of());
+        Thread.sleep(5);
+        jwtKeyProvider.retireExpiredKeys();
+
+        assertThatThrownBy(() -> subject(before)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void shouldAcceptTokensIssuedWithoutKeyIdWithTheConfiguredSecret() {
+        jwtKeyProvider = keyProvider(SECRET, "HS256", 60_000, List.of(PREVIOUS_SECRET), List.of());
+        String legacy = Jwts.builder().subject("legacy")
+                .signWith(hmacKey(SECRET), Jwts.SIG.HS256).compact();
+
+        assertThat(subject(legacy)).isEqualTo("legacy");
+        assertThat((List<?>) jwtKeyProvider.getJwkSet().get("keys")).isEmpty();
+    }
+
+    private String subject(String token) {
+        return jwtKeyProvider.getParser().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Path writePem(JwtKeyProvider keyProvider) throws IOException {
+        List<PublicJwk<PublicKey>> keys =
+                (List<PublicJwk<PublicKey>>) keyProvider.getJwkSet().get("keys");
+        String pem = "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder().encodeToString(keys.get(0).toKey().getEncoded())
+                + "\n-----END PUBLIC KEY-----\n";
+        return Files.writeString(tempDir.resolve("previous.pem"), pem);
+    }
+
+    private static SecretKey hmacKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JwtKeyProvider keyProvider(String secret, String algorithm, long expiration,
+            List<String> previousSecrets, List<String> previousPublicKeyPaths) {
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.jwt()).thenReturn(new JwtProperties(secret, expiration, expiration,
+                30, true, 43200, false, algorithm, null, null, previousSecrets,
+                previousPublicKeyPaths, 0.5));
+        return new JwtKeyProvider(appProperties);
+    }
+}
@@ -0,0 +1,48 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import com.aqryuz.auth.config.AppProperties;
+import io.jsonwebtoken.Jwts;
+
+class JwtServiceTest {
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(mock(AppProperties.class), mock(TokenBlacklistService.class),
+                mock(JwtKeyProvider.class), mock(TokenRefreshPolicy.class),
+                mock(SessionStateCache.class));
+    }
+
+    @Test
+    void shouldBuildPrincipalFromStatelessClaims() {
+        VerifiedToken token = VerifiedToken.of("token", Jwts.claims().subject("alice")
+                .add(JwtService.CLAIM_ROLES, List.of("USER", "ADMIN"))
+                .add(JwtService.CLAIM_SECURITY_VERSION, 3).build());
+
+        UserDetails principal = jwtService.principalFromClaims(token);
+
+        assertThat(principal.getUsername()).isEqualTo("alice");
+        assertThat(principal.getAuthorities()).map(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(principal.isEnabled()).isTrue();
+    }
+
+    @Test
+    void shouldNotBuildPrincipalWithoutStatelessClaims() {
+        VerifiedToken withoutRoles = VerifiedToken.of("token", Jwts.claims().subject("alice")
+                .add(JwtService.CLAIM_SECURITY_VERSION, 3).build());
+        VerifiedToken withoutVersion = VerifiedToken.of("token", Jwts.claims().subject("alice")
+                .add(JwtService.CLAIM_ROLES, List.of("USER")).build());
+
+        assertThat(jwtService.principalFromClaims(withoutRoles)).isNull();
+        assertThat(jwtService.principalFromClaims(withoutVersion)).isNull();
+    }
+}
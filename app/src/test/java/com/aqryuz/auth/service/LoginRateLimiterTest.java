@@ -0,0 +1,98 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.LoginRateLimitProperties;
+import com.aqryuz.auth.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimiter loginRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.loginRateLimit())
+                .thenReturn(new LoginRateLimitProperties(true, 3, 1, 5, 1, 8, 1, 1000));
+        loginRateLimiter = new LoginRateLimiter(appProperties, meterRegistry);
+    }
+
+    @Test
+    void shouldRejectUserOnceBurstIsSpentWhateverTheCase() {
+        loginRateLimiter.checkAttempt("alice", "10.0.0.1");
+        loginRateLimiter.checkAttempt("Alice", "10.0.0.2");
+        loginRateLimiter.checkAttempt(" ALICE ", "10.0.0.3");
+
+        assertThatThrownBy(() -> loginRateLimiter.checkAttempt("alice", "10.0.0.4"))
+                .isInstanceOf(RateLimitExceededException.class)
+                .satisfies(e -> assertThat(((RateLimitExceededException) e).getRetryAfterSeconds())
+                        .isPositive());
+        assertThat(meterRegistry.counter("auth.login.rate_limited", "scope", "user").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldRejectAddressSprayingManyUsers() {
+        for (int i = 0; i < 5; i++) {
+            loginRateLimiter.checkAttempt("user" + i, "192.0.2.7");
+        }
+
+        assertThatThrownBy(() -> loginRateLimiter.checkAttempt("other", "192.0.2.7"))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(meterRegistry.counter("auth.login.rate_limited", "scope", "ip").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldRejectSubnetSpreadAcrossAddresses() {
+        for (int i = 0; i < 8; i++) {
+            loginRateLimiter.checkAttempt("user" + i, "198.51.100." + i);
+        }
+
+        assertThatThrownBy(() -> loginRateLimiter.checkAttempt("other", "198.51.100.200"))
+                .isInstanceOf(RateLimitExceededException.class);
+        // A neighbouring network has its own budget
+        loginRateLimiter.checkAttempt("other", "198.51.101.1");
+    }
+
+    @Test
+    void shouldNotChargeAddressForAttemptRejectedByUserScope() {
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.checkAttempt("alice", "192.0.2.7");
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> loginRateLimiter.checkAttempt("alice", "192.0.2.7"))
+                    .isInstanceOf(RateLimitExceededException.class);
+        }
+
+        // The rejected attempts were refunded, so the address still has its last two tokens
+        loginRateLimiter.checkAttempt("bob", "192.0.2.7");
+        loginRateLimiter.checkAttempt("carol", "192.0.2.7");
+        assertThatThrownBy(() -> loginRateLimiter.checkAttempt("dave", "192.0.2.7"))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(meterRegistry.counter("auth.login.rate_limited", "scope", "user").count())
+                .isEqualTo(5.0);
+        assertThat(meterRegistry.counter("auth.login.rate_limited", "scope", "ip").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldGroupAddressesByNetwork() {
+        assertThat(LoginRateLimiter.subnetOf("203.0.113.45")).isEqualTo("203.0.113.0/24");
+        assertThat(LoginRateLimiter.subnetOf("2001:db8:1:2:3:4:5:6"))
+                .isEqualTo("2001:db8:1:2:0:0:0:0/64");
+        assertThat(LoginRateLimiter.subnetOf("::ffff:203.0.113.45")).isEqualTo("203.0.113.0/24");
+        // Forged header values come back unchanged instead of being resolved
+        assertThat(LoginRateLimiter.subnetOf("not-an-address")).isEqualTo("not-an-address");
+        assertThat(LoginRateLimiter.subnetOf("999.1.1.1")).isEqualTo("999.1.1.1");
+        assertThat(LoginRateLimiter.subnetOf("zz:zz")).isEqualTo("zz:zz");
+    }
+}
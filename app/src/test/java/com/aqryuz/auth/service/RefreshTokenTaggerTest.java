@@ -0,0 +1,48 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.RefreshTokenProperties;
+
+class RefreshTokenTaggerTest {
+
+    private static final UUID FAMILY = UUID.randomUUID();
+
+    @Test
+    void shouldVerifyTagsOfPreviousKeyAfterRotation() {
+        String tag = tagger("old-key").tag(FAMILY, 3, "secret");
+
+        RefreshTokenTagger rotated = tagger("new-key", "old-key");
+
+        assertThat(rotated.verify(FAMILY, 3, "secret", tag)).isTrue();
+        assertThat(rotated.tag(FAMILY, 3, "secret")).isNotEqualTo(tag);
+    }
+
+    @Test
+    void shouldRejectTagsOfUnknownKeyOrOtherPrefix() {
+        String tag = tagger("other-key").tag(FAMILY, 3, "secret");
+        RefreshTokenTagger tagger = tagger("key");
+
+        assertThat(tagger.verify(FAMILY, 3, "secret", tag)).isFalse();
+        assertThat(tagger.verify(FAMILY, 4, "secret", tagger.tag(FAMILY, 3, "secret")))
+                .isFalse();
+    }
+
+    @Test
+    void shouldRequireTagKey() {
+        assertThatThrownBy(() -> tagger(" ")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static RefreshTokenTagger tagger(String tagKey, String... previousTagKeys) {
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.refreshToken())
+                .thenReturn(new RefreshTokenProperties(tagKey, List.of(previousTagKeys)));
+        return new RefreshTokenTagger(appProperties);
+    }
+}
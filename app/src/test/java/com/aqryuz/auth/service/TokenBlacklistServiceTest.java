@@ -0,0 +1,138 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.JwtProperties;
+import com.aqryuz.auth.config.AppProperties.RevocationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenBlacklistServiceTest {
+
+    // app.jwt.max-session-duration-minutes plus app.jwt.expiration: 30 days and one day
+    private static final Duration HORIZON = Duration.ofDays(31);
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenBlacklistService tokenBlacklistService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.revocation()).thenReturn(new RevocationProperties("memory", 5));
+        when(appProperties.jwt()).thenReturn(new JwtProperties("unused",
+                TimeUnit.DAYS.toMillis(1), TimeUnit.DAYS.toMillis(30), 30, true,
+                TimeUnit.DAYS.toMinutes(30), false, "HS256", null, null, List.of(), List.of(),
+                0.5));
+        tokenBlacklistService = new TokenBlacklistService(meterRegistry,
+                new InMemoryTokenRevocationStore(), appProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenBlacklistService.shutdown();
+    }
+
+    @Test
+    void shouldRejectRevokedSessionUntilExpiry() {
+        String sessionId = UUID.randomUUID().toString();
+        tokenBlacklistService.blacklist(sessionId, Instant.now().plusSeconds(60));
+
+        assertThat(tokenBlacklistService.isBlacklisted(sessionId)).isTrue();
+        assertThat(tokenBlacklistService.isBlacklisted(UUID.randomUUID().toString())).isFalse();
+    }
+
+    @Test
+    void shouldIgnoreAlreadyExpiredRevocations() {
+        String sessionId = UUID.randomUUID().toString();
+        tokenBlacklistService.blacklist(sessionId, Instant.now().minusSeconds(1));
+
+        assertThat(tokenBlacklistService.isBlacklisted(sessionId)).isFalse();
+        assertThat(tokenBlacklistService.getBlacklistSize()).isZero();
+    }
+
+    @Test
+    void shouldKeepLiveRevocationsDuringCleanup() {
+        String sessionId = UUID.randomUUID().toString();
+        tokenBlacklistService.blacklist(sessionId, Instant.now().plusSeconds(3600));
+
+        tokenBlacklistService.cleanupExpiredTokens();
+
+        assertThat(tokenBlacklistService.isBlacklisted(sessionId)).isTrue();
+    }
+
+    @Test
+    void shouldKeepFilterPartitionsBoundedAcrossTheRevocationHorizon() {
+        Instant now = Instant.now();
+        for (int i = 1; i <= 1000; i++) {
+            tokenBlacklistService.blacklist(UUID.randomUUID().toString(),
+                    now.plus(HORIZON.multipliedBy(i).dividedBy(1000)));
+        }
+
+        assertThat(meterRegistry.get("auth.blacklist.filter.partitions").gauge().value())
+                .isLessThanOrEqualTo(25);
+    }
+
+    @Test
+    void bloomFilterShouldHaveNoFalseNegativesAndBoundedFalsePositives() {
+        RevocationBloomFilter filter = new RevocationBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("revoked-" + i)).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.02);
+    }
+
+    @Test
+    void partitionedFilterShouldForgetOnlyPartitionsWhoseWindowIsOver() {
+        PartitionedRevocationFilter filter = new PartitionedRevocationFilter(1000, 16, 0.01);
+        filter.put("early", 1500);
+        filter.put("late", 2500);
+
+        assertThat(filter.dropExpired(2000)).isEqualTo(1);
+
+        assertThat(filter.mightContain("early")).isFalse();
+        assertThat(filter.mightContain("late")).isTrue();
+        assertThat(filter.partitionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void partitionedFilterShouldGrowPastItsCapacityWithoutFalseNegatives() {
+        PartitionedRevocationFilter filter = new PartitionedRevocationFilter(1000, 16, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("revoked-" + i, 1500);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain("revoked-" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / 100_000.0).isLessThan(0.03);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.03);
+    }
+}
@@ -0,0 +1,92 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.JwtProperties;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenRefreshPolicyTest {
+
+    private static final long LIFETIME = TimeUnit.MINUTES.toMillis(60);
+    private static final long WINDOW_MINUTES = 30;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRefreshPolicy tokenRefreshPolicy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.jwt()).thenReturn(new JwtProperties("unused", LIFETIME, LIFETIME,
+                WINDOW_MINUTES, true, 480, false, "HS256", null, null, List.of(), List.of(),
+                0.5));
+        tokenRefreshPolicy = new TokenRefreshPolicy(appProperties, meterRegistry);
+    }
+
+    @Test
+    void shouldNotReissueFreshToken() {
+        long now = System.currentTimeMillis();
+
+        assertThat(tokenRefreshPolicy.isDue(token("s1", now, now))).isFalse();
+        assertThat(count("not_due")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldReissueOnceThresholdOfLifetimeHasElapsed() {
+        long now = System.currentTimeMillis();
+        long issuedAt = now - LIFETIME / 2 - 1000;
+
+        assertThat(tokenRefreshPolicy.isDue(token("s1", issuedAt, now))).isTrue();
+        assertThat(count("not_due")).isZero();
+    }
+
+    @Test
+    void shouldReissueWhenRecordedActivityFallsBehindSlidingWindow() {
+        long now = System.currentTimeMillis();
+        long staleActivity = now - TimeUnit.MINUTES.toMillis(WINDOW_MINUTES / 2 + 1);
+
+        assertThat(tokenRefreshPolicy.isDue(token("s1", now, staleActivity))).isTrue();
+    }
+
+    @Test
+    void shouldCoalesceConcurrentReissuesOfSameToken() {
+        long now = System.currentTimeMillis();
+        VerifiedToken presented = token("s1", now, now);
+        AtomicInteger signatures = new AtomicInteger();
+
+        String first = tokenRefreshPolicy.reissue(presented,
+                () -> "new-" + signatures.incrementAndGet());
+        String second = tokenRefreshPolicy.reissue(token("s1", now, now),
+                () -> "new-" + signatures.incrementAndGet());
+        String otherSession = tokenRefreshPolicy.reissue(token("s2", now, now),
+                () -> "new-" + signatures.incrementAndGet());
+
+        assertThat(second).isEqualTo(first).isEqualTo("new-1");
+        assertThat(otherSession).isEqualTo("new-2");
+        assertThat(count("issued")).isEqualTo(2.0);
+        assertThat(count("coalesced")).isEqualTo(1.0);
+    }
+
+    private static VerifiedToken token(String sessionId, long issuedAt, long lastActivity) {
+        // Whole seconds, as in a real JWT, so equal tokens share their memo key
+        Date issued = new Date(issuedAt / 1000 * 1000);
+        return VerifiedToken.of("token-" + sessionId,
+                Jwts.claims().subject("user").issuedAt(issued)
+                        .expiration(new Date(issued.getTime() + LIFETIME))
+                        .add(JwtService.CLAIM_SESSION_ID, sessionId)
+                        .add(JwtService.CLAIM_LAST_ACTIVITY, lastActivity).build());
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("auth.token.reissue", "result", result).count();
+    }
+}
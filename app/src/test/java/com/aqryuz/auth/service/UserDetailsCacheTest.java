@@ -0,0 +1,87 @@
+package com.aqryuz.auth.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import com.aqryuz.auth.config.AppProperties;
+import com.aqryuz.auth.config.AppProperties.CacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserDetailsCacheTest {
+
+    private UserDetailsCache userDetailsCache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = cache(300);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        UserDetails first = userDetailsCache.get("alice", loader("v1"));
+        UserDetails second = userDetailsCache.get("alice", loader("v2"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldReloadOnceTtlHasPassed() throws InterruptedException {
+        userDetailsCache = cache(1);
+        userDetailsCache.get("alice", loader("v1"));
+
+        Thread.sleep(1100);
+
+        assertThat(userDetailsCache.get("alice", loader("v2")).getPassword()).isEqualTo("v2");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldNotCacheMissingUsers() {
+        assertThat(userDetailsCache.get("ghost", key -> null)).isNull();
+
+        assertThat(userDetailsCache.get("ghost", loader("v1"))).isNotNull();
+    }
+
+    @Test
+    void shouldEvictAgainAfterCommit() {
+        userDetailsCache.get("alice", loader("v1"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userDetailsCache.invalidate("alice");
+            // A reader on another thread re-caches the row as it was before the commit
+            userDetailsCache.get("alice", loader("stale"));
+
+            TransactionSynchronizationUtils
+                    .invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(userDetailsCache.get("alice", loader("v2")).getPassword()).isEqualTo("v2");
+    }
+
+    private Function<String, UserDetails> loader(String version) {
+        return username -> {
+            loads.incrementAndGet();
+            return User.withUsername(username).password(version).roles("USER").build();
+        };
+    }
+
+    private static UserDetailsCache cache(long ttlSeconds) {
+        AppProperties appProperties = mock(AppProperties.class);
+        when(appProperties.cache())
+                .thenReturn(new CacheProperties(100, ttlSeconds, ttlSeconds, 100, 30, 100));
+        return new UserDetailsCache(appProperties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,84 @@
+-- Tables as ddl-auto=update created them from the entities before the schema moved to Flyway,
+-- with a user holding one refresh token in the format of that time (Base64 hash next to the
+-- plaintext token)
+
+create table users (
+    id bigint generated by default as identity,
+    username varchar(50) not null,
+    password varchar(255) not null,
+    email varchar(255) not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    totp_secret varchar(255),
+    totp_enabled boolean not null,
+    account_enabled boolean not null,
+    account_locked boolean not null,
+    failed_login_attempts integer not null,
+    lockout_time timestamp(6),
+    last_login timestamp(6),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id),
+    constraint uk_users_username unique (username),
+    constraint uk_users_email unique (email)
+);
+
+create table user_roles (
+    user_id bigint not null,
+    role varchar(255) check (role in ('ADMIN','USER')),
+    constraint fk_user_roles_user foreign key (user_id) references users
+);
+
+create table refresh_tokens (
+    id bigint generated by default as identity,
+    token varchar(500) not null,
+    token_hash varchar(255) not null,
+    expiry_date timestamp(6) not null,
+    created_at timestamp(6) not null,
+    last_used_at timestamp(6),
+    user_id bigint not null,
+    device_fingerprint varchar(255) not null,
+    ip_address varchar(255) not null,
+    user_agent varchar(255) not null,
+    remember_me boolean default false not null,
+    active boolean default true not null,
+    primary key (id),
+    constraint uk_refresh_tokens_token unique (token),
+    constraint fk_refresh_tokens_user foreign key (user_id) references users
+);
+
+create table user_sessions (
+    id bigint generated by default as identity,
+    user_id bigint not null,
+    session_id varchar(255) not null,
+    jwt_token_id varchar(255) not null,
+    device_name varchar(255),
+    device_type varchar(255),
+    browser_name varchar(255),
+    browser_version varchar(255),
+    operating_system varchar(255),
+    ip_address varchar(255),
+    location varchar(255),
+    user_agent varchar(255),
+    is_active boolean not null,
+    created_at timestamp(6),
+    last_activity timestamp(6),
+    expires_at timestamp(6),
+    revoked_at timestamp(6),
+    revoked_by varchar(255),
+    primary key (id),
+    constraint uk_user_sessions_session_id unique (session_id),
+    constraint fk_user_sessions_user foreign key (user_id) references users
+);
+
+insert into users (username, password, email, totp_enabled, account_enabled, account_locked,
+        failed_login_attempts, created_at)
+    values ('legacy', 'unused', 'legacy@example.com', false, true, false, 0, now());
+
+insert into user_roles (user_id, role) select id, 'USER' from users where username = 'legacy';
+
+insert into refresh_tokens (token, token_hash, expiry_date, created_at, user_id,
+        device_fingerprint, ip_address, user_agent)
+    select 'legacy-token', encode(sha256('legacy-token'), 'base64'), now() + interval '1 day',
+        now(), id, 'legacy', '127.0.0.1', 'legacy'
+    from users where username = 'legacy';